@@ -0,0 +1,42 @@
+package com.tempo.application.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tempo.application.service.StatsCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Caches des statistiques (Caffeine) : bornés en taille, avec durée de vie,
+ * et statistiques de hit/miss exposées par l'actuator (cache.gets, cache.evictions...)
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Value("${app.stats.cache.max-entries:10000}")
+    private long maxEntries;
+
+    @Value("${app.stats.cache.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    @Bean
+    public CacheManager cacheManager() {
+        // Caches déclarés au démarrage pour que leurs métriques soient enregistrées
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(
+                StatsCache.CATEGORY_STATS,
+                StatsCache.TOTAL_WORKTIME,
+                StatsCache.COMBINED_STATS);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+}
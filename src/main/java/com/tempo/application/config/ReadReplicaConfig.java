@@ -0,0 +1,180 @@
+package com.tempo.application.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tempo.application.utils.LoggerUtils;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Routage des transactions en lecture seule (@Transactional(readOnly = true)) vers un réplica PostgreSQL.
+ *
+ * Actif uniquement si app.datasource.replica.url est renseignée ; sinon la datasource
+ * auto-configurée (primaire seule) est utilisée. Le proxy paresseux retarde l'obtention
+ * de la connexion jusqu'à la première requête, une fois la transaction marquée en lecture seule.
+ * Si le réplica est indisponible, la lecture est servie par le primaire.
+ *
+ * Lecture de ses propres écritures : après le commit d'une transaction en écriture, les lectures
+ * du même utilisateur sont servies par le primaire pendant primary-after-write-ms. Sans cela,
+ * un planning ou des statistiques relus sur un réplica en retard seraient remis en cache
+ * juste après l'invalidation, pour toute la durée de vie du cache.
+ */
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replica.url:}'.isEmpty()")
+public class ReadReplicaConfig {
+
+    private static final Logger logger = LoggerUtils.getLogger(ReadReplicaConfig.class);
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    @Value("${app.datasource.replica.url}")
+    private String replicaUrl;
+
+    @Value("${app.datasource.replica.username:${spring.datasource.username}}")
+    private String replicaUsername;
+
+    @Value("${app.datasource.replica.password:${spring.datasource.password}}")
+    private String replicaPassword;
+
+    @Value("${app.datasource.replica.maximum-pool-size:10}")
+    private int replicaMaximumPoolSize;
+
+    // Court : au-delà, la lecture bascule sur le primaire
+    @Value("${app.datasource.replica.connection-timeout-ms:2000}")
+    private long replicaConnectionTimeoutMs;
+
+    @Value("${app.datasource.replica.primary-after-write-ms:5000}")
+    private long primaryAfterWriteMs;
+
+    @Bean(autowireCandidate = false)
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("tempo-primary");
+        return dataSource;
+    }
+
+    @Bean(autowireCandidate = false)
+    public HikariDataSource replicaDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("tempo-replica");
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        dataSource.setJdbcUrl(replicaUrl);
+        dataSource.setUsername(replicaUsername);
+        dataSource.setPassword(replicaPassword);
+        dataSource.setMaximumPoolSize(replicaMaximumPoolSize);
+        dataSource.setConnectionTimeout(replicaConnectionTimeoutMs);
+        dataSource.setReadOnly(true);
+        // Démarrage possible même si le réplica est injoignable
+        dataSource.setInitializationFailTimeout(-1);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties) {
+        DataSource primary = primaryDataSource(properties);
+        DataSource replica = replicaDataSource(properties);
+
+        ReadOnlyRoutingDataSource routing = new ReadOnlyRoutingDataSource(primary, Duration.ofMillis(primaryAfterWriteMs));
+        routing.setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+
+        LoggerUtils.info(logger, "Read-only transactions routed to replica " + replicaUrl);
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Primaire pour les écritures et hors transaction, réplica pour les transactions en lecture seule
+     * sauf pour un utilisateur qui vient d'écrire
+     */
+    private static class ReadOnlyRoutingDataSource extends AbstractRoutingDataSource {
+
+        private final DataSource primary;
+
+        // Utilisateurs (nom du principal) ayant commité une écriture récemment
+        private final Cache<String, Boolean> recentWriters;
+
+        ReadOnlyRoutingDataSource(DataSource primary, Duration primaryAfterWrite) {
+            this.primary = primary;
+            this.recentWriters = Caffeine.newBuilder()
+                    .expireAfterWrite(primaryAfterWrite)
+                    .build();
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                String user = currentUser();
+                if (user != null) {
+                    markWriter(user);
+                }
+                return PRIMARY;
+            }
+            return readsFromReplica() ? REPLICA : PRIMARY;
+        }
+
+        private boolean readsFromReplica() {
+            String user = currentUser();
+            return user == null || recentWriters.getIfPresent(user) == null;
+        }
+
+        private void markWriter(String user) {
+            // Marqué dès maintenant (les lectures parallèles de l'utilisateur restent sur le primaire),
+            // puis à nouveau au commit pour que la fenêtre parte de la fin de la transaction
+            recentWriters.put(user, Boolean.TRUE);
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recentWriters.put(user, Boolean.TRUE);
+                    }
+                });
+            }
+        }
+
+        private static String currentUser() {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication == null || !authentication.isAuthenticated()
+                    || authentication instanceof AnonymousAuthenticationToken) {
+                return null;
+            }
+            return authentication.getName();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            try {
+                return super.getConnection();
+            } catch (SQLException e) {
+                if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || !readsFromReplica()) {
+                    throw e;
+                }
+                LoggerUtils.error(ReadReplicaConfig.logger, "Replica unavailable, reading from primary: " + e.getMessage());
+                return primary.getConnection();
+            }
+        }
+    }
+}
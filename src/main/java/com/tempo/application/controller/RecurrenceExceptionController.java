@@ -74,8 +74,18 @@ public class RecurrenceExceptionController {
         try {
             LoggerUtils.info(logger, "Creating new recurrence exception");
 
+            // Récupérer l'utilisateur connecté
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String email = authentication.getName();
+            User user = userRepository.findByEmail(email);
+
+            if (user == null) {
+                ApiError error = new ApiError(HttpStatus.BAD_REQUEST, "User not found", "USER_NOT_FOUND");
+                return ResponseEntity.badRequest().body(error);
+            }
+
             RecurrenceException createdEntity = recurrenceExceptionService.createRecurrenceException(
-                    dto.getPauseStart(), dto.getPauseEnd());
+                    dto.getPauseStart(), dto.getPauseEnd(), user.getId());
 
             RecurrenceExceptionDTO responseDto = RecurrenceExceptionDTO.fromEntity(createdEntity);
             return new ResponseEntity<>(responseDto, HttpStatus.CREATED);
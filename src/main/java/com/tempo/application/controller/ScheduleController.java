@@ -1,8 +1,9 @@
 package com.tempo.application.controller;
 
 import java.time.LocalDate;
-import java.util.Collections;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,10 +13,12 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.tempo.application.model.schedule.ScheduleDateEntryDTO;
 import com.tempo.application.model.schedule.ScheduleEntryDTO;
+import com.tempo.application.model.schedule.ScheduleMonthDTO;
 import com.tempo.application.model.schedule.ScheduleThreeDaysDTO;
 import com.tempo.application.model.user.User;
 import com.tempo.application.repository.UserRepository;
@@ -30,6 +33,9 @@ import com.tempo.application.utils.LoggerUtils;
 public class ScheduleController {
 
     private static final Logger logger = LoggerUtils.getLogger(ScheduleController.class);
+
+    // Plage maximale de /schedule/range (environ deux mois)
+    private static final int MAX_RANGE_DAYS = 62;
     
     @Autowired
     private ScheduleService scheduleService;
@@ -49,19 +55,9 @@ public class ScheduleController {
             LoggerUtils.info(logger, "Fetching user schedule for date: " + date);
             User user = userRepository.findByEmail(SecurityContextHolder.getContext().getAuthentication().getName());
             LocalDate localDate = LocalDate.parse(date);
-            LocalDate yesterdayDate = localDate.minusDays(1);
-            LocalDate todayDate = localDate;
-            LocalDate tomorrowDate = localDate.plusDays(1);
-            
-            List<ScheduleEntryDTO> yesterday = scheduleService.getUserScheduleByDate(yesterdayDate, user.getId());
-            List<ScheduleEntryDTO> today = scheduleService.getUserScheduleByDate(todayDate, user.getId());
-            List<ScheduleEntryDTO> tomorrow = scheduleService.getUserScheduleByDate(tomorrowDate, user.getId());
-            
-            ScheduleThreeDaysDTO scheduleThreeDays = ScheduleThreeDaysDTO.builder()
-                .yesterday(yesterday)
-                .today(today)
-                .tomorrow(tomorrow)
-                .build();
+
+            // Hier, aujourd'hui et demain récupérés en une seule fenêtre
+            ScheduleThreeDaysDTO scheduleThreeDays = scheduleService.getUserScheduleForThreeDays(localDate, user.getId());
             
             return ResponseEntity.ok(scheduleThreeDays);
         } catch (Exception e) {
@@ -70,6 +66,47 @@ public class ScheduleController {
         }
     }
 
+    /**
+     * Récupère les entrées de planification de chaque jour d'une plage de dates,
+     * chargées en une seule fois pour toute la plage
+     *
+     * @param from Premier jour au format YYYY-MM-DD
+     * @param to   Dernier jour (inclus) au format YYYY-MM-DD
+     * @return Les entrées de planification indexées par jour
+     */
+    @GetMapping("/range")
+    public ResponseEntity<?> getUserScheduleByRange(@RequestParam String from, @RequestParam String to) {
+        LoggerUtils.info(logger, "Fetching user schedule from " + from + " to " + to);
+        try {
+            User user = userRepository.findByEmail(SecurityContextHolder.getContext().getAuthentication().getName());
+            if (user == null) {
+                return ResponseEntity.badRequest().body("User not found");
+            }
+
+            LocalDate fromDate;
+            LocalDate toDate;
+            try {
+                fromDate = LocalDate.parse(from);
+                toDate = LocalDate.parse(to);
+            } catch (Exception e) {
+                LoggerUtils.error(logger, "Invalid range format: " + from + " - " + to);
+                return ResponseEntity.badRequest().body("Invalid date format. Use YYYY-MM-DD format.");
+            }
+            if (toDate.isBefore(fromDate)) {
+                return ResponseEntity.badRequest().body("'to' must be on or after 'from'");
+            }
+            if (ChronoUnit.DAYS.between(fromDate, toDate) >= MAX_RANGE_DAYS) {
+                return ResponseEntity.badRequest().body("Range cannot exceed " + MAX_RANGE_DAYS + " days");
+            }
+
+            Map<LocalDate, List<ScheduleEntryDTO>> schedule = scheduleService.getUserScheduleForWindow(fromDate, toDate, user.getId());
+            return ResponseEntity.ok(schedule);
+        } catch (Exception e) {
+            LoggerUtils.error(logger, "Error fetching user schedule from " + from + " to " + to, e);
+            return ResponseEntity.badRequest().body("Error retrieving user schedule: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/month/{month}")
     public ResponseEntity<?> getUserScheduleByMonth(@PathVariable String month) {
         LoggerUtils.info(logger, "Fetching user schedule for month: " + month);
@@ -101,4 +138,36 @@ public class ScheduleController {
             return ResponseEntity.badRequest().body("Error retrieving monthly schedule: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Récupère le planning d'un mois développé côté serveur : worktimes ponctuels et,
+     * pour chaque série, les jours d'occurrence et les jours annulés (masques de bits)
+     *
+     * @param month Une date du mois au format YYYY-MM-DD
+     * @return Le planning développé du mois
+     */
+    @GetMapping("/month/{month}/expanded")
+    public ResponseEntity<?> getUserExpandedScheduleByMonth(@PathVariable String month) {
+        LoggerUtils.info(logger, "Fetching expanded user schedule for month: " + month);
+        try {
+            User user = userRepository.findByEmail(SecurityContextHolder.getContext().getAuthentication().getName());
+            if (user == null) {
+                return ResponseEntity.badRequest().body("User not found");
+            }
+
+            LocalDate localDate;
+            try {
+                localDate = LocalDate.parse(month);
+            } catch (Exception e) {
+                LoggerUtils.error(logger, "Invalid month format: " + month);
+                return ResponseEntity.badRequest().body("Invalid month format. Use YYYY-MM-DD format.");
+            }
+
+            ScheduleMonthDTO schedule = scheduleService.getUserExpandedScheduleByMonth(localDate, user.getId());
+            return ResponseEntity.ok(schedule);
+        } catch (Exception e) {
+            LoggerUtils.error(logger, "Error retrieving expanded monthly schedule: " + e.getMessage(), e);
+            return ResponseEntity.badRequest().body("Error retrieving expanded monthly schedule: " + e.getMessage());
+        }
+    }
+}
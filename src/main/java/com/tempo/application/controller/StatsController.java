@@ -1,13 +1,11 @@
 package com.tempo.application.controller;
 
-import com.tempo.application.model.worktime.DTO.CategoryStatDTO;
 import com.tempo.application.service.StatsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import com.tempo.application.model.user.User;
@@ -35,11 +33,7 @@ public class StatsController {
         if (user == null) {
             throw new RuntimeException("User not found");
         }
-        List<CategoryStatDTO> categories = statsService.getCategoryStats(user.getId(), from, to);
-        Object total = statsService.getTotalWorkTime(user.getId(), from, to, type);
-        java.util.Map<String, Object> result = new java.util.HashMap<>();
-        result.put("categories", categories);
-        result.put("total", total);
-        return result;
+        // Catégories, total par période et détail par catégorie calculés en un seul passage
+        return statsService.getCombinedStats(user.getId(), from, to, type);
     }
 }  
\ No newline at end of file
@@ -1,9 +1,14 @@
 package com.tempo.application.controller;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,13 +19,17 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.tempo.application.model.pagination.CursorPageDTO;
 import com.tempo.application.model.user.User;
 import com.tempo.application.model.worktime.Worktime;
 import com.tempo.application.model.worktime.DTO.WorktimeRequestDTO;
 import com.tempo.application.model.worktime.DTO.WorktimeResponseDTO;
 import com.tempo.application.repository.UserRepository;
+import com.tempo.application.service.ExportService;
 import com.tempo.application.service.WorktimeService;
 import com.tempo.application.utils.LoggerUtils;
 
@@ -35,6 +44,9 @@ public class WorktimeController {
     
     @Autowired
     private UserRepository userRepository;
+
+    @Autowired
+    private ExportService exportService;
     
     @PostMapping("/create")
     public ResponseEntity<?> createWorktime(@RequestBody WorktimeRequestDTO worktimeRequest) {
@@ -58,6 +70,32 @@ public class WorktimeController {
             return ResponseEntity.badRequest().body("Error creating worktime: " + e.getMessage());
         }
     }
+
+    /**
+     * Création en masse (import) : toutes les entrées ou aucune
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createWorktimes(@RequestBody List<WorktimeRequestDTO> worktimeRequests) {
+        try {
+            LoggerUtils.info(logger, "Creating worktime entries in batch");
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String email = authentication.getName();
+            User user = userRepository.findByEmail(email);
+            
+            if (user == null) {
+                LoggerUtils.error(logger, "User not found for email: " + email);
+                return ResponseEntity.badRequest().body("User not found");
+            }
+            
+            List<WorktimeResponseDTO> responseDTOs = worktimeService.createWorktimes(worktimeRequests, user.getId()).stream()
+                .map(WorktimeResponseDTO::fromEntity)
+                .toList();
+            return new ResponseEntity<>(responseDTOs, HttpStatus.CREATED);
+        } catch (Exception e) {
+            LoggerUtils.error(logger, "Error creating worktimes: " + e.getMessage(), e);
+            return ResponseEntity.badRequest().body("Error creating worktimes: " + e.getMessage());
+        }
+    }
     
     @GetMapping("/user")
     public ResponseEntity<?> getUserWorktimes() {
@@ -79,6 +117,65 @@ public class WorktimeController {
         }
     }
 
+    /**
+     * Worktimes de l'utilisateur connecté, du plus récent au plus ancien, par pages
+     * @param cursor nextCursor de la page précédente (absent pour la première page)
+     */
+    @GetMapping("/user/page")
+    public ResponseEntity<?> getUserWorktimesPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = CursorPageDTO.DEFAULT_LIMIT) int limit) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String email = authentication.getName();
+            User user = userRepository.findByEmail(email);
+
+            if (user == null) {
+                return ResponseEntity.badRequest().body("User not found");
+            }
+
+            return ResponseEntity.ok(worktimeService.getUserWorktimesPage(user.getId(), cursor, limit));
+        } catch (Exception e) {
+            LoggerUtils.error(logger, "Error retrieving user worktimes page: " + e.getMessage(), e);
+            return ResponseEntity.badRequest().body("Error retrieving worktimes: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Export de l'historique (worktimes et occurrences de séries) sur [from, to[,
+     * écrit au fil de l'eau dans la réponse
+     * @param format "csv" ou "ndjson"
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportUserWorktimes(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = ExportService.FORMAT_CSV) String format) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String email = authentication.getName();
+        User user = userRepository.findByEmail(email);
+
+        if (user == null) {
+            return ResponseEntity.badRequest().body("User not found");
+        }
+        if (!to.isAfter(from)) {
+            return ResponseEntity.badRequest().body("'to' must be after 'from'");
+        }
+        boolean csv = ExportService.FORMAT_CSV.equalsIgnoreCase(format);
+        if (!csv && !ExportService.FORMAT_NDJSON.equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().body("Unsupported format. Use csv or ndjson.");
+        }
+
+        Integer userId = user.getId();
+        StreamingResponseBody body = output -> exportService.export(userId, from, to, format, output);
+        String filename = "worktimes-" + from.toLocalDate() + "-" + to.toLocalDate() + (csv ? ".csv" : ".ndjson");
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", java.nio.charset.StandardCharsets.UTF_8)
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
     // Route /user/{date} déplacée vers ScheduleController
     
     @GetMapping("/{id}")
@@ -5,7 +5,9 @@ import com.tempo.application.model.user.User;
 import com.tempo.application.repository.UserRepository;
 import com.tempo.application.service.WorktimeSeriesService;
 import com.tempo.application.utils.LoggerUtils;
+import com.tempo.application.model.worktimeSeries.WorktimeSeriesRequestDTO;
 import com.tempo.application.model.worktimeSeries.WorktimeSeriesResponseDTO;
+import com.tempo.application.model.pagination.CursorPageDTO;
 
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -79,6 +81,33 @@ public class WorktimeSeriesController {
         }
     }
     
+    /**
+     * Crée plusieurs séries en une fois (import) : toutes les séries ou aucune
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createWorktimeSeriesBatch(@RequestBody List<WorktimeSeriesRequestDTO> worktimeSeriesRequests) {
+        try {
+            LoggerUtils.info(logger, "Creating worktime series in batch");
+            
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String email = authentication.getName();
+            User user = userRepository.findByEmail(email);
+            
+            if (user == null) {
+                LoggerUtils.error(logger, "User not found for email: " + email);
+                return ResponseEntity.badRequest().body("User not found");
+            }
+            
+            List<WorktimeSeriesResponseDTO> responseDTOs = worktimeSeriesService.createWorktimeSeriesBatch(worktimeSeriesRequests, user).stream()
+                .map(WorktimeSeriesResponseDTO::fromEntity)
+                .toList();
+            return new ResponseEntity<>(responseDTOs, HttpStatus.CREATED);
+        } catch (Exception e) {
+            LoggerUtils.error(logger, "Error creating worktime series: " + e.getMessage(), e);
+            return ResponseEntity.badRequest().body("Error creating worktime series: " + e.getMessage());
+        }
+    }
+    
     /**
      * Récupère une série de créneaux horaires par son ID
      */
@@ -182,6 +211,30 @@ public class WorktimeSeriesController {
         }
     }
     
+    /**
+     * Récupère les séries de l'utilisateur connecté par pages, de la plus récente à la plus ancienne
+     */
+    @GetMapping("/user/page")
+    public ResponseEntity<?> getUserWorktimeSeriesPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = CursorPageDTO.DEFAULT_LIMIT) int limit) {
+        try {
+            // Récupérer l'utilisateur connecté
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String email = authentication.getName();
+            User user = userRepository.findByEmail(email);
+            
+            if (user == null) {
+                return ResponseEntity.badRequest().body("User not found");
+            }
+            
+            return ResponseEntity.ok(worktimeSeriesService.getWorkTimeSeriesPageByUserId(user.getId(), cursor, limit));
+        } catch (Exception e) {
+            LoggerUtils.error(logger, "Error retrieving user worktime series page: " + e.getMessage(), e);
+            return ResponseEntity.badRequest().body("Error retrieving worktime series: " + e.getMessage());
+        }
+    }
+    
     /**
      * Récupère toutes les séries de créneaux horaires actives de l'utilisateur connecté
      */
@@ -0,0 +1,26 @@
+package com.tempo.application.model.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Page d'une liste paginée par curseur (keyset) : nextCursor est à renvoyer
+ * tel quel pour obtenir la page suivante, null s'il n'y a plus d'élément
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+    // Taille de page par défaut et maximale des listes paginées
+    public static final String DEFAULT_LIMIT = "50";
+    public static final int MAX_LIMIT = 200;
+
+    private List<T> items;
+    private String nextCursor;
+}
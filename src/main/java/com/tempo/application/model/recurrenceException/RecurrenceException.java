@@ -47,4 +47,8 @@ public class RecurrenceException {
 
     @Column(name = "target_series_id")
     private Long targetSeriesId;
+
+    // Propriétaire de l'exception (null pour les anciennes pauses sans série)
+    @Column(name = "user_id")
+    private Integer userId;
 }
\ No newline at end of file
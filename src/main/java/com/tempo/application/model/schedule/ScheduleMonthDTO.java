@@ -0,0 +1,22 @@
+package com.tempo.application.model.schedule;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Planning d'un mois déjà développé : worktimes ponctuels et occurrences des séries par jour
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleMonthDTO {
+    private String month; // YYYY-MM
+    private int lengthOfMonth;
+    private List<ScheduleDateEntryDTO> worktimes;
+    private List<ScheduleSeriesMonthDTO> series;
+}
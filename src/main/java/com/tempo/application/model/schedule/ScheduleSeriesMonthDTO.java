@@ -0,0 +1,45 @@
+package com.tempo.application.model.schedule;
+
+import java.time.LocalDateTime;
+
+import com.tempo.application.model.worktimeSeries.WorktimeSeries;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Occurrences d'une série sur un mois, encodées en masques de bits :
+ * le bit (jour - 1) est à 1 si la série a une occurrence ce jour-là
+ * (bit 0 = 1er du mois ... bit 30 = 31).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleSeriesMonthDTO {
+    private Long id;
+    private LocalDateTime startHour;
+    private LocalDateTime endHour;
+    private Long duration;
+    private String recurrence;
+    private Long categoryId;
+    private String categoryName;
+    private Boolean ignoreExceptions;
+    private int days;          // occurrences effectives (hors annulations)
+    private int cancelledDays; // occurrences annulées par une exception
+
+    public static ScheduleSeriesMonthDTO fromWorktimeSeries(WorktimeSeries workTimeSeries) {
+        return ScheduleSeriesMonthDTO.builder()
+                .id(workTimeSeries.getId())
+                .startHour(workTimeSeries.getStartHour())
+                .endHour(workTimeSeries.getEndHour())
+                .duration(workTimeSeries.getDuration())
+                .recurrence(workTimeSeries.getRecurrence())
+                .categoryId((long) workTimeSeries.getCategory().getId())
+                .categoryName(workTimeSeries.getCategory().getName())
+                .ignoreExceptions(workTimeSeries.getIgnoreExceptions())
+                .build();
+    }
+}
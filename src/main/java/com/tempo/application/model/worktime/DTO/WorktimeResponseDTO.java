@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 import com.tempo.application.model.worktime.Worktime;
@@ -21,6 +22,12 @@ public class WorktimeResponseDTO {
     private String categoryName;
     private Long duration;
 
+    // Projection JPQL (listes paginées) : les entités ne sont pas chargées
+    public WorktimeResponseDTO(Integer id, LocalDateTime startHour, LocalDateTime endHour, Integer categoryId, String categoryName) {
+        this(id, "SINGLE", startHour, endHour, categoryId, categoryName,
+                startHour != null && endHour != null ? Duration.between(startHour, endHour).toMinutes() : null);
+    }
+
     public static WorktimeResponseDTO fromEntity(Worktime worktime) {
         return WorktimeResponseDTO.builder()
                 .id(worktime.getId())
@@ -12,6 +12,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -31,8 +32,10 @@ import org.hibernate.annotations.OnDeleteAction;
 @Builder
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Worktime {
+    // Séquence à allocation par blocs de 50 (V012) : permet le batch JDBC des insertions
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "worktime_id_seq")
+    @SequenceGenerator(name = "worktime_id_seq", sequenceName = "worktime_id_seq", allocationSize = 50)
     private int id;
 
     // Format ISO-8601 (2025-04-26T13:30)
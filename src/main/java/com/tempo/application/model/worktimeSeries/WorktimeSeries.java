@@ -24,7 +24,9 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 @AllArgsConstructor
 @Builder
 public class WorktimeSeries {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Séquence à allocation par blocs de 50 (V012) : permet le batch JDBC des insertions
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "worktime_series_id_seq")
+    @SequenceGenerator(name = "worktime_series_id_seq", sequenceName = "worktime_series_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false)
@@ -0,0 +1,25 @@
+package com.tempo.application.model.worktimeSeries;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Série reçue par l'import en masse : seuls les champs modifiables par le client sont liés
+ * (pas d'identifiant, d'utilisateur ni d'exceptions)
+ */
+@Data
+public class WorktimeSeriesRequestDTO {
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private LocalDateTime startHour;
+    private LocalDateTime endHour;
+    private String recurrence;
+    private Boolean ignoreExceptions;
+    private Category category;
+
+    @Data
+    public static class Category {
+        private Integer id;
+    }
+}
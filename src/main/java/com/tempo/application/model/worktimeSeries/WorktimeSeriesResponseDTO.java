@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 @Data
@@ -22,6 +23,13 @@ public class WorktimeSeriesResponseDTO {
     private String recurrence;
     private Long duration; // Durée en minutes
 
+    // Projection JPQL (listes paginées) : les entités et leurs exceptions ne sont pas chargées
+    public WorktimeSeriesResponseDTO(Long id, LocalDateTime startDate, LocalDateTime endDate, LocalDateTime startHour,
+                                     LocalDateTime endHour, Integer categoryId, String categoryName, String recurrence) {
+        this(id, "RECURRING", startDate, endDate, startHour, endHour, categoryId != null ? categoryId : 0, categoryName,
+                recurrence, startHour != null && endHour != null ? Duration.between(startHour, endHour).toMinutes() : null);
+    }
+
     public static WorktimeSeriesResponseDTO fromEntity(WorktimeSeries series) {
         return WorktimeSeriesResponseDTO.builder()
                 .id(series.getId())
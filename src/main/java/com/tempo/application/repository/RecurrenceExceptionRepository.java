@@ -1,12 +1,14 @@
 package com.tempo.application.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.tempo.application.model.recurrenceException.RecurrenceException;
 import com.tempo.application.model.recurrenceException.ExceptionType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,13 +20,19 @@ public interface RecurrenceExceptionRepository extends JpaRepository<RecurrenceE
     Optional<RecurrenceException> findByPauseStartAndPauseEnd(LocalDateTime pauseStart, LocalDateTime pauseEnd);
 
     /**
-     * Trouve toutes les exceptions qui se chevauchent avec la période donnée.
+     * Trouve les exceptions de l'utilisateur qui se chevauchent avec la période donnée.
      * Une exception chevauche si elle partage au moins un jour avec la période
-     * donnée.
+     * donnée (pause_start < endDate AND pause_end > startDate, index GiST user_id + pause_range).
+     * La plage fermée n'est jamais vide, même pour une période de durée nulle : l'index présélectionne,
+     * les comparaisons strictes donnent le résultat exact.
      */
-    @Query("SELECT re FROM RecurrenceException re " +
-            "WHERE (re.pauseStart < :endDate AND re.pauseEnd > :startDate)")
-    List<RecurrenceException> findOverlappingExceptions(
+    @Query(value = "SELECT re.* FROM recurrence_exception re " +
+            "WHERE re.user_id = :userId " +
+            "AND re.pause_range && tsrange(CAST(:startDate AS TIMESTAMP), CAST(:endDate AS TIMESTAMP), '[]') " +
+            "AND re.pause_start < CAST(:endDate AS TIMESTAMP) AND re.pause_end > CAST(:startDate AS TIMESTAMP)",
+            nativeQuery = true)
+    List<RecurrenceException> findOverlappingExceptionsByUserId(
+            @Param("userId") Integer userId,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
 
@@ -32,25 +40,61 @@ public interface RecurrenceExceptionRepository extends JpaRepository<RecurrenceE
      * Trouve toutes les exceptions liées à un utilisateur donné
      */
     @Query("SELECT DISTINCT re FROM RecurrenceException re " +
+            "LEFT JOIN FETCH re.series " + // séries lues par RecurrenceExceptionDTO, sans requête par exception
             "LEFT JOIN re.series s " +
             "LEFT JOIN s.user u " +
-            "WHERE u.id = :userId OR " +
-            "(re.series IS EMPTY)") // Inclure aussi les exceptions sans séries
+            "WHERE re.userId = :userId OR u.id = :userId OR " +
+            "(re.series IS EMPTY AND re.userId IS NULL)") // Inclure aussi les anciennes exceptions sans séries ni propriétaire
     List<RecurrenceException> findAllByUserIdOrWithoutSeries(@Param("userId") Integer userId);
 
     /**
      * Trouve les exceptions de type WORKTIME_SERIES pour une série et une date
-     * données
+     * données : l'annulation appartient au jour où elle commence, même si elle se
+     * termine le lendemain (index target_series_id + pause_start)
      */
-    @Query("SELECT re FROM RecurrenceException re " +
-            "WHERE re.exceptionType = :exceptionType " +
-            "AND re.targetSeriesId = :targetSeriesId " +
-            "AND re.pauseStart >= :startOfDay " +
-            "AND re.pauseStart < :startOfNextDay")
+    @Query(value = "SELECT re.* FROM recurrence_exception re " +
+            "WHERE re.exception_type = :#{#exceptionType.name()} " +
+            "AND re.target_series_id = :targetSeriesId " +
+            "AND re.pause_start >= CAST(:startOfDay AS TIMESTAMP) " +
+            "AND re.pause_start < CAST(:startOfNextDay AS TIMESTAMP)",
+            nativeQuery = true)
     List<RecurrenceException> findByExceptionTypeAndTargetSeriesIdAndDateRange(
             @Param("exceptionType") ExceptionType exceptionType,
             @Param("targetSeriesId") Long targetSeriesId,
             @Param("startOfDay") LocalDateTime startOfDay,
             @Param("startOfNextDay") LocalDateTime startOfNextDay);
 
+    /**
+     * Retire les liens des séries vers les exceptions qui ne les concernent plus : pauses de l'utilisateur
+     * hors de la période de la série, ou toutes les pauses si la série ignore les exceptions.
+     * Les annulations d'un jour ciblant la série sont conservées.
+     * Chevauchement : pause_start < fin de la série (sans fin : infini) et pause_end > début de la série ;
+     * la plage fermée de la série n'est jamais vide, même pour une série d'un seul instant.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM recurrence_exception_series res " +
+            "USING recurrence_exception e, worktime_series s " +
+            "WHERE res.series_id IN (:seriesIds) AND e.id = res.exception_id AND s.id = res.series_id " +
+            "AND NOT (e.exception_type = 'WORKTIME_SERIES' AND e.target_series_id = s.id) " +
+            "AND NOT (e.exception_type = 'DAY' AND e.user_id = s.user_id " +
+            "AND s.ignore_exceptions IS NOT TRUE " +
+            "AND e.pause_range && tsrange(s.start_date, s.end_date, '[]') " +
+            "AND e.pause_start < COALESCE(s.end_date, CAST('infinity' AS TIMESTAMP)) " +
+            "AND e.pause_end > s.start_date)", nativeQuery = true)
+    int unlinkStaleExceptions(@Param("seriesIds") Collection<Long> seriesIds);
+
+    /**
+     * Lie les séries aux pauses de leur propriétaire qui chevauchent leur période (liens existants inchangés)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO recurrence_exception_series (exception_id, series_id) " +
+            "SELECT e.id, s.id FROM worktime_series s " +
+            "JOIN recurrence_exception e ON e.user_id = s.user_id AND e.exception_type = 'DAY' " +
+            "AND e.pause_range && tsrange(s.start_date, s.end_date, '[]') " +
+            "AND e.pause_start < COALESCE(s.end_date, CAST('infinity' AS TIMESTAMP)) " +
+            "AND e.pause_end > s.start_date " +
+            "WHERE s.id IN (:seriesIds) AND s.ignore_exceptions IS NOT TRUE " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int linkOverlappingExceptions(@Param("seriesIds") Collection<Long> seriesIds);
+
 }
@@ -1,21 +1,181 @@
 package com.tempo.application.repository;
 
 import com.tempo.application.model.worktimeSeries.WorktimeSeries;
+import com.tempo.application.model.worktimeSeries.WorktimeSeriesResponseDTO;
 import com.tempo.application.model.user.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 public interface WorkTimeSeriesRepository extends JpaRepository<WorktimeSeries, Integer> {
+
+    // Règles hebdomadaires simples que PostgreSQL sait développer (ex. "FREQ=WEEKLY;BYDAY=MO,WE,FR")
+    String SQL_EXPANDABLE_RULE = "'^FREQ=WEEKLY;BYDAY=(MO|TU|WE|TH|FR|SA|SU)(,(MO|TU|WE|TH|FR|SA|SU))*$'";
+
+    // Condition SQL (alias s) des séries développées par WorktimeRepository.getTotalWorktimeWithWeeklySeriesByPeriod
+    String SQL_EXPANDABLE_SERIES = "(s.recurrence ~ " + SQL_EXPANDABLE_RULE + " " +
+           "AND s.start_hour IS NOT NULL AND s.end_hour IS NOT NULL)";
+
+    // Catégorie et exceptions chargées avec les séries (sérialisées dans la réponse)
+    @EntityGraph(attributePaths = {"user", "category", "exceptions"})
     List<WorktimeSeries> findByUser(User user);
 
-    @Query("SELECT s FROM WorktimeSeries s WHERE s.user.id = :userId " +
+    // Pagination keyset (start_date DESC, id DESC), index (user_id, start_date, id) : première page
+    @Query("SELECT new com.tempo.application.model.worktimeSeries.WorktimeSeriesResponseDTO(" +
+           "s.id, s.startDate, s.endDate, s.startHour, s.endHour, c.id, c.name, s.recurrence) " +
+           "FROM WorktimeSeries s LEFT JOIN s.category c WHERE s.user.id = :userId " +
+           "ORDER BY s.startDate DESC, s.id DESC")
+    List<WorktimeSeriesResponseDTO> findPageByUserId(@Param("userId") Integer userId, Limit limit);
+
+    // Page suivante : éléments strictement après le curseur (startDate, id) dans l'ordre décroissant
+    @Query("SELECT new com.tempo.application.model.worktimeSeries.WorktimeSeriesResponseDTO(" +
+           "s.id, s.startDate, s.endDate, s.startHour, s.endHour, c.id, c.name, s.recurrence) " +
+           "FROM WorktimeSeries s LEFT JOIN s.category c WHERE s.user.id = :userId " +
+           "AND (s.startDate < :startDate OR (s.startDate = :startDate AND s.id < :id)) " +
+           "ORDER BY s.startDate DESC, s.id DESC")
+    List<WorktimeSeriesResponseDTO> findPageByUserIdAfter(@Param("userId") Integer userId,
+                                                          @Param("startDate") LocalDateTime startDate,
+                                                          @Param("id") Long id,
+                                                          Limit limit);
+
+    // Séries actives sur [from, to], avec catégorie et exceptions chargées en une seule requête
+    @Query("SELECT DISTINCT s FROM WorktimeSeries s JOIN FETCH s.user LEFT JOIN FETCH s.category " +
+           "LEFT JOIN FETCH s.exceptions WHERE s.user.id = :userId " +
            "AND (s.endDate IS NULL OR s.endDate >= :from) " +
            "AND s.startDate <= :to")
     List<WorktimeSeries> findByUserAndPeriod(@Param("userId") Integer userId,
                                                   @Param("from") LocalDateTime from,
                                                   @Param("to") LocalDateTime to);
+
+    // Séries récurrentes actives sur [from, to[, avec catégorie et exceptions chargées en une seule requête
+    @Query("SELECT DISTINCT s FROM WorktimeSeries s JOIN FETCH s.user JOIN FETCH s.category " +
+           "LEFT JOIN FETCH s.exceptions WHERE s.user.id = :userId " +
+           "AND s.recurrence IS NOT NULL " +
+           "AND (s.endDate IS NULL OR s.endDate >= :from) " +
+           "AND s.startDate < :to")
+    List<WorktimeSeries> findByUserIdAndPeriodWithExceptions(@Param("userId") Integer userId,
+                                                             @Param("from") LocalDateTime from,
+                                                             @Param("to") LocalDateTime to);
+
+    // Identifiants des séries de la période que le moteur SQL des statistiques ne sait pas développer
+    @Query(value = "SELECT s.id FROM worktime_series s WHERE s.user_id = :userId " +
+           "AND (s.end_date IS NULL OR s.end_date >= :from) " +
+           "AND s.start_date <= :to " +
+           "AND NOT COALESCE(" + SQL_EXPANDABLE_SERIES + ", false)", nativeQuery = true)
+    List<Long> findIdsByUserAndPeriodNotSqlExpandable(@Param("userId") Integer userId,
+                                                      @Param("from") LocalDateTime from,
+                                                      @Param("to") LocalDateTime to);
+
+    // Séries par identifiants, avec catégorie et exceptions chargées en une seule requête
+    @Query("SELECT DISTINCT s FROM WorktimeSeries s JOIN FETCH s.user LEFT JOIN FETCH s.category " +
+           "LEFT JOIN FETCH s.exceptions WHERE s.id IN :ids")
+    List<WorktimeSeries> findAllWithExceptionsByIdIn(@Param("ids") List<Long> ids);
+
+    // Lie l'exception aux séries de l'utilisateur actives pendant la pause, en une requête
+    // (index partiel idx_worktime_series_user_period_linkable). Le contexte est vidé : recharger les entités liées.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO recurrence_exception_series (exception_id, series_id) " +
+           "SELECT :exceptionId, s.id FROM worktime_series s WHERE s.user_id = :userId " +
+           "AND s.ignore_exceptions IS NOT TRUE " +
+           "AND s.start_date < :pauseEnd " +
+           "AND (s.end_date IS NULL OR s.end_date > :pauseStart) " +
+           "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int linkExceptionToActiveSeries(@Param("exceptionId") Long exceptionId,
+                                    @Param("userId") Integer userId,
+                                    @Param("pauseStart") LocalDateTime pauseStart,
+                                    @Param("pauseEnd") LocalDateTime pauseEnd);
+
+    // --- Occurrences matérialisées (table series_occurrence) ---
+
+    @Modifying
+    @Query(value = "DELETE FROM series_occurrence WHERE series_id = :seriesId", nativeQuery = true)
+    void deleteOccurrences(@Param("seriesId") Long seriesId);
+
+    // Insère les occurrences d'une série en une requête : jours et jours annulés au format "2025-01-06,2025-01-08"
+    @Modifying
+    @Query(value = "INSERT INTO series_occurrence (series_id, user_id, day, start_hour, minutes, cancelled) " +
+           "SELECT :seriesId, :userId, CAST(d AS DATE), CAST(d AS DATE) + CAST(:startTime AS TIME), :minutes, " +
+           "CAST(d AS DATE) = ANY (CAST(string_to_array(:cancelledDays, ',') AS DATE[])) " +
+           "FROM unnest(string_to_array(:days, ',')) AS d " +
+           "ON CONFLICT (series_id, day) DO UPDATE SET start_hour = EXCLUDED.start_hour, " +
+           "minutes = EXCLUDED.minutes, cancelled = EXCLUDED.cancelled", nativeQuery = true)
+    void insertOccurrences(@Param("seriesId") Long seriesId,
+                           @Param("userId") Integer userId,
+                           @Param("startTime") String startTime,
+                           @Param("minutes") Integer minutes,
+                           @Param("days") String days,
+                           @Param("cancelledDays") String cancelledDays);
+
+    @Modifying
+    @Query(value = "UPDATE worktime_series SET occurrences_materialized_until = :day WHERE id = :seriesId", nativeQuery = true)
+    void setOccurrencesMaterializedUntil(@Param("seriesId") Long seriesId, @Param("day") LocalDate day);
+
+    // Séries jamais matérialisées, ou encore actives et matérialisées avant l'horizon : [id, dernier jour matérialisé]
+    // Par pages d'identifiants croissants (keyset) : page suivante avec afterId = dernier id lu
+    @Query(value = "SELECT s.id, s.occurrences_materialized_until FROM worktime_series s WHERE s.recurrence IS NOT NULL " +
+           "AND s.id > :afterId " +
+           "AND (s.occurrences_materialized_until IS NULL " +
+           "OR (s.occurrences_materialized_until < :horizon " +
+           "AND (s.end_date IS NULL OR CAST(s.end_date AS DATE) > s.occurrences_materialized_until))) " +
+           "ORDER BY s.id LIMIT :limit", nativeQuery = true)
+    List<Object[]> findSeriesToMaterialize(@Param("horizon") LocalDate horizon,
+                                           @Param("afterId") Long afterId,
+                                           @Param("limit") int limit);
+
+    // Nombre de séries de l'utilisateur actives sur la période dont les occurrences ne sont pas matérialisées jusqu'à lastDay
+    @Query(value = "SELECT COUNT(*) FROM worktime_series s WHERE s.user_id = :userId " +
+           "AND s.recurrence IS NOT NULL " +
+           "AND (s.end_date IS NULL OR s.end_date >= :from) " +
+           "AND s.start_date <= :to " +
+           "AND (s.occurrences_materialized_until IS NULL " +
+           "OR s.occurrences_materialized_until < LEAST(CAST(:lastDay AS DATE), COALESCE(CAST(s.end_date AS DATE), CAST(:lastDay AS DATE))))",
+           nativeQuery = true)
+    long countSeriesNotMaterializedUntil(@Param("userId") Integer userId,
+                                         @Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to,
+                                         @Param("lastDay") LocalDate lastDay);
+
+    // Minutes des occurrences non annulées par catégorie : [nom de catégorie, minutes]
+    // Séries sans catégorie regroupées sous "<no-cat>", comme dans le développement en Java
+    @Query(value = "SELECT COALESCE(c.name, '<no-cat>'), CAST(SUM(o.minutes) AS INTEGER) FROM series_occurrence o " +
+           "JOIN worktime_series s ON s.id = o.series_id " +
+           "LEFT JOIN category c ON c.id = s.category_id " +
+           "WHERE o.user_id = :userId AND o.day BETWEEN :firstDay AND :lastDay AND o.cancelled = false " +
+           "GROUP BY COALESCE(c.name, '<no-cat>')", nativeQuery = true)
+    List<Object[]> getCategoryStatsFromOccurrences(@Param("userId") Integer userId,
+                                                   @Param("firstDay") LocalDate firstDay,
+                                                   @Param("lastDay") LocalDate lastDay);
+
+    // Minutes des occurrences non annulées par jour : [jour, minutes]
+    @Query(value = "SELECT o.day, SUM(o.minutes) FROM series_occurrence o " +
+           "WHERE o.user_id = :userId AND o.day BETWEEN :firstDay AND :lastDay AND o.cancelled = false " +
+           "GROUP BY o.day ORDER BY o.day", nativeQuery = true)
+    List<Object[]> getTotalMinutesFromOccurrencesGroupByDay(@Param("userId") Integer userId,
+                                                            @Param("firstDay") LocalDate firstDay,
+                                                            @Param("lastDay") LocalDate lastDay);
+
+    // Minutes des occurrences non annulées par jour et par catégorie : [jour, nom de catégorie, minutes]
+    @Query(value = "SELECT o.day, c.name, CAST(SUM(o.minutes) AS BIGINT) FROM series_occurrence o " +
+           "JOIN worktime_series s ON s.id = o.series_id " +
+           "LEFT JOIN category c ON c.id = s.category_id " +
+           "WHERE o.user_id = :userId AND o.day BETWEEN :firstDay AND :lastDay AND o.cancelled = false " +
+           "GROUP BY o.day, c.name", nativeQuery = true)
+    List<Object[]> getMinutesFromOccurrencesGroupByDayAndCategory(@Param("userId") Integer userId,
+                                                                  @Param("firstDay") LocalDate firstDay,
+                                                                  @Param("lastDay") LocalDate lastDay);
+
+    // Occurrences de la période : [id de série, jour, annulée]
+    @Query(value = "SELECT o.series_id, o.day, o.cancelled FROM series_occurrence o " +
+           "WHERE o.user_id = :userId AND o.day BETWEEN :firstDay AND :lastDay " +
+           "ORDER BY o.series_id, o.day", nativeQuery = true)
+    List<Object[]> findOccurrencesByUserAndPeriod(@Param("userId") Integer userId,
+                                                  @Param("firstDay") LocalDate firstDay,
+                                                  @Param("lastDay") LocalDate lastDay);
 }
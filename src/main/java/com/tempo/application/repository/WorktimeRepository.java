@@ -1,110 +1,252 @@
 package com.tempo.application.repository;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import com.tempo.application.model.user.User;
 import com.tempo.application.model.worktime.Worktime;
+import com.tempo.application.model.worktime.DTO.WorktimeResponseDTO;
 import com.tempo.application.model.category.Category;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 
 public interface WorktimeRepository extends JpaRepository<Worktime, Integer> {
   Optional<Worktime> findById(int id);
 
-  // Retourne tous les worktimes liés à un id utilisateur
+  // Retourne tous les worktimes liés à un id utilisateur (utilisateur et catégorie dans la même requête)
+  @EntityGraph(attributePaths = {"user", "category"})
   List<Worktime> findByUserId(Integer userId);
 
   // Retourne tous les worktimes pour une plage de dates
+  @EntityGraph(attributePaths = {"user", "category"})
   List<Worktime> findByStartHourBetween(LocalDateTime start, LocalDateTime end);
 
     // Retourne tous les worktimes pour une plage de dates et un utilisateur
     // spécifique
+    @EntityGraph(attributePaths = {"user", "category"})
     List<Worktime> findByStartHourBetweenAndUser(LocalDateTime start, LocalDateTime end, User user);
 
-    // Retourne tous les worktimes qui se chevauchent avec une plage de dates et un utilisateur
-    @Query("SELECT w FROM Worktime w WHERE w.user = :user AND w.startHour < :end AND (w.endHour IS NULL OR w.endHour > :start) AND w.endHour IS NOT NULL")
-    List<Worktime> findOverlappingWorktimesByUserAndPeriod(@Param("user") User user, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    // Retourne tous les worktimes qui se chevauchent avec une plage de dates et un utilisateur.
+    // startLowerBound : start moins findMaxWorktimeMinutes, borne basse sur startHour (élagage des partitions)
+    @Query("SELECT w FROM Worktime w JOIN FETCH w.user LEFT JOIN FETCH w.category " +
+           "WHERE w.user = :user AND w.startHour >= :startLowerBound AND w.startHour < :end AND w.endHour > :start")
+    List<Worktime> findOverlappingWorktimesByUserAndPeriod(@Param("user") User user, @Param("startLowerBound") LocalDateTime startLowerBound,
+                                                           @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 
   // Récupère tous les worktimes en cours (sans endTime) pour un utilisateur
+  @EntityGraph(attributePaths = {"user", "category"})
   List<Worktime> findByUserAndEndHourIsNull(User user);
 
+    // Variante par id utilisateur (sans charger l'utilisateur), catégorie chargée dans la même requête
+    @Query("SELECT w FROM Worktime w JOIN FETCH w.user LEFT JOIN FETCH w.category WHERE w.user.id = :userId " +
+           "AND w.startHour >= :startLowerBound AND w.startHour < :end AND w.endHour > :start")
+    List<Worktime> findOverlappingWorktimesByUserIdAndPeriod(@Param("userId") Integer userId, @Param("startLowerBound") LocalDateTime startLowerBound,
+                                                             @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Durée maximale en minutes des worktimes terminés de l'utilisateur (voir V018), 0 si aucun
+    @Query(value = "SELECT COALESCE(MAX(sp.max_minutes), 0) FROM worktime_user_span sp WHERE sp.user_id = :userId", nativeQuery = true)
+    long findMaxWorktimeMinutes(@Param("userId") Integer userId);
+
+    // Chronos en cours par id utilisateur, catégorie chargée dans la même requête
+    @Query("SELECT w FROM Worktime w JOIN FETCH w.user LEFT JOIN FETCH w.category WHERE w.user.id = :userId AND w.endHour IS NULL")
+    List<Worktime> findOngoingByUserId(@Param("userId") Integer userId);
+
+    // Pagination keyset (start_hour DESC, id DESC), index (user_id, start_hour, id) : première page
+    @Query("SELECT new com.tempo.application.model.worktime.DTO.WorktimeResponseDTO(w.id, w.startHour, w.endHour, c.id, c.name) " +
+           "FROM Worktime w LEFT JOIN w.category c WHERE w.user.id = :userId " +
+           "ORDER BY w.startHour DESC, w.id DESC")
+    List<WorktimeResponseDTO> findPageByUserId(@Param("userId") Integer userId, Limit limit);
+
+    // Page suivante : éléments strictement après le curseur (startHour, id) dans l'ordre décroissant
+    @Query("SELECT new com.tempo.application.model.worktime.DTO.WorktimeResponseDTO(w.id, w.startHour, w.endHour, c.id, c.name) " +
+           "FROM Worktime w LEFT JOIN w.category c WHERE w.user.id = :userId " +
+           "AND (w.startHour < :startHour OR (w.startHour = :startHour AND w.id < :id)) " +
+           "ORDER BY w.startHour DESC, w.id DESC")
+    List<WorktimeResponseDTO> findPageByUserIdAfter(@Param("userId") Integer userId,
+                                                    @Param("startHour") LocalDateTime startHour,
+                                                    @Param("id") Integer id,
+                                                    Limit limit);
+
+    // Worktimes terminés commençant dans [from, to[, lus par lots via un curseur JDBC (export).
+    // À consommer dans une transaction et à fermer après usage.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT w FROM Worktime w JOIN FETCH w.user LEFT JOIN FETCH w.category WHERE w.user.id = :userId " +
+           "AND w.startHour >= :from AND w.startHour < :to AND w.endHour IS NOT NULL ORDER BY w.startHour, w.id")
+    Stream<Worktime> streamFinishedByUserIdAndPeriod(@Param("userId") Integer userId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
   void deleteByCategory(Category category);
 
-  @Query(value = "SELECT c.name as name, " +
-      "CAST(SUM(EXTRACT(EPOCH FROM (w.end_hour - w.start_hour))/60) AS INTEGER) as duration " +
-      "FROM worktime w " +
-      "JOIN category c ON w.category_id = c.id " +
-      "WHERE w.user_id = :userId " +
-      "AND w.start_hour < :to " +
-      "AND (w.end_hour IS NULL OR w.end_hour > :from) " +
-      "AND w.end_hour IS NOT NULL " +
-      "AND NOT EXISTS (" +
-      "    SELECT 1 FROM recurrence_exception_series res " +
-      "    JOIN recurrence_exception e ON res.exception_id = e.id " +
-      "    JOIN worktime_series s ON res.series_id = s.id " +
-      "    WHERE s.ignore_exceptions = false " +
-      "    AND w.start_hour >= e.pause_start " +
-      "    AND w.end_hour <= e.pause_end" +
-      ") " +
-      "GROUP BY c.name", nativeQuery = true)
-  List<Object[]> getCategoryStatsByUserAndPeriodExcludingExceptions(@Param("userId") Integer userId,
-      @Param("from") LocalDateTime from,
-      @Param("to") LocalDateTime to);
+  // Crée les partitions mensuelles manquantes jusqu'à monthsAhead mois (voir V011) : nombre de partitions créées
+  @Query(value = "SELECT public.ensure_worktime_partitions(:monthsAhead)", nativeQuery = true)
+  Integer ensureWorktimePartitions(@Param("monthsAhead") int monthsAhead);
+
+  // --- Agrégat journalier (worktime_daily_rollup) ---
+
+  // Ajoute un delta (positif ou négatif) à la ligne (utilisateur, jour, catégorie), créée si besoin
+  @Modifying
+  @Query(value = "INSERT INTO worktime_daily_rollup (user_id, day, category_id, minutes, worktime_count) " +
+      "VALUES (:userId, :day, :categoryId, :minutes, :count) " +
+      "ON CONFLICT (user_id, day, (COALESCE(category_id, 0))) DO UPDATE SET " +
+      "minutes = worktime_daily_rollup.minutes + EXCLUDED.minutes, " +
+      "worktime_count = worktime_daily_rollup.worktime_count + EXCLUDED.worktime_count", nativeQuery = true)
+  void addToDailyRollup(@Param("userId") Integer userId,
+      @Param("day") LocalDate day,
+      @Param("categoryId") Integer categoryId,
+      @Param("minutes") long minutes,
+      @Param("count") int count);
 
   @Query(value = "SELECT c.name as name, " +
-      "CAST(SUM(EXTRACT(EPOCH FROM (w.end_hour - w.start_hour))/60) AS INTEGER) as duration " +
-      "FROM worktime w " +
-      "JOIN category c ON w.category_id = c.id " +
-      "WHERE w.user_id = :userId " +
-      "AND w.start_hour < :to " +
-      "AND (w.end_hour IS NULL OR w.end_hour > :from) " +
-      "AND w.end_hour IS NOT NULL " +
+      "CAST(SUM(r.minutes) AS INTEGER) as duration " +
+      "FROM worktime_daily_rollup r " +
+      "JOIN category c ON r.category_id = c.id " +
+      "WHERE r.user_id = :userId " +
+      "AND r.day BETWEEN :from AND :to " +
+      "AND r.worktime_count > 0 " +
       "GROUP BY c.name", nativeQuery = true)
-  List<Object[]> getCategoryStatsByUserAndPeriod(@Param("userId") Integer userId,
-      @Param("from") LocalDateTime from,
-      @Param("to") LocalDateTime to);
-
-  @Query(value = "SELECT DATE(w.start_hour) as date, " +
-      "CAST(SUM(EXTRACT(EPOCH FROM (w.end_hour - w.start_hour))/60) AS BIGINT) as duration " +
-      "FROM worktime w " +
-      "WHERE w.user_id = :userId " +
-      "AND w.start_hour < :to " +
-      "AND (w.end_hour IS NULL OR w.end_hour > :from) " +
-      "AND w.end_hour IS NOT NULL " +
-      "GROUP BY DATE(w.start_hour)", nativeQuery = true)
-  List<Object[]> getTotalWorktimeByUserAndPeriodGroupByDay(
+  List<Object[]> getCategoryStatsFromRollup(@Param("userId") Integer userId,
+      @Param("from") LocalDate from,
+      @Param("to") LocalDate to);
+
+  // Agrégat journalier par jour et par catégorie :
+  // [jour, nom de catégorie (null si sans catégorie), minutes, nombre de worktimes]
+  @Query(value = "SELECT r.day as date, c.name as name, " +
+      "CAST(SUM(r.minutes) AS BIGINT) as duration, " +
+      "CAST(SUM(r.worktime_count) AS BIGINT) as count " +
+      "FROM worktime_daily_rollup r " +
+      "LEFT JOIN category c ON r.category_id = c.id " +
+      "WHERE r.user_id = :userId " +
+      "AND r.day BETWEEN :from AND :to " +
+      "GROUP BY r.day, c.name", nativeQuery = true)
+  List<Object[]> getRollupGroupByDayAndCategory(
       @Param("userId") Integer userId,
-      @Param("from") LocalDateTime from,
-      @Param("to") LocalDateTime to);
-
-  @Query(value = "SELECT TO_CHAR(w.start_hour, 'YYYY-MM') as period, " +
-      "CAST(SUM(EXTRACT(EPOCH FROM (w.end_hour - w.start_hour))/60) AS BIGINT) as duration " +
-      "FROM worktime w " +
-      "WHERE w.user_id = :userId " +
-      "AND w.start_hour < :to " +
-      "AND (w.end_hour IS NULL OR w.end_hour > :from) " +
-      "AND w.end_hour IS NOT NULL " +
-      "GROUP BY TO_CHAR(w.start_hour, 'YYYY-MM')", nativeQuery = true)
-  List<Object[]> getTotalWorktimeByUserAndPeriodGroupByMonth(
+      @Param("from") LocalDate from,
+      @Param("to") LocalDate to);
+
+  // Borne basse sur start_hour des worktimes qui chevauchent :from : aucun worktime terminé de
+  // l'utilisateur ne dure plus que worktime_user_span.max_minutes (voir V018)
+  String SQL_OVERLAP_START_LOWER_BOUND = "CAST(:from AS TIMESTAMP) - (SELECT COALESCE(MAX(sp.max_minutes), 0) " +
+      "FROM worktime_user_span sp WHERE sp.user_id = :userId) * INTERVAL '1 minute'";
+
+  // Worktimes terminés chevauchant [from, to[ qui commencent hors des jours entiers lus dans l'agrégat :
+  // avant :interiorStart (y compris avant :from) ou à partir de :interiorEnd.
+  // Même forme que getRollupGroupByDayAndCategory (durée complète, jour de début) :
+  // [jour, nom de catégorie (null si sans catégorie), minutes, nombre de worktimes]
+  @Query(value = "SELECT CAST(e.start_hour AS DATE) as date, c.name as name, " +
+      "CAST(SUM(FLOOR(EXTRACT(EPOCH FROM (e.end_hour - e.start_hour)) / 60)) AS BIGINT) as duration, " +
+      "CAST(COUNT(*) AS BIGINT) as count " +
+      "FROM (" +
+      "    SELECT w.start_hour, w.end_hour, w.category_id FROM worktime w " +
+      "    WHERE w.user_id = :userId " +
+      "    AND w.start_hour >= " + SQL_OVERLAP_START_LOWER_BOUND + " " +
+      "    AND w.start_hour < :interiorStart AND w.start_hour < :to AND w.end_hour > :from " +
+      "    UNION ALL " +
+      "    SELECT w.start_hour, w.end_hour, w.category_id FROM worktime w " +
+      "    WHERE w.user_id = :userId " +
+      "    AND w.start_hour >= :interiorEnd AND w.start_hour < :to AND w.end_hour > :from " +
+      ") e " +
+      "LEFT JOIN category c ON e.category_id = c.id " +
+      "GROUP BY CAST(e.start_hour AS DATE), c.name", nativeQuery = true)
+  List<Object[]> getEdgeWorktimesGroupByDayAndCategory(
       @Param("userId") Integer userId,
       @Param("from") LocalDateTime from,
-      @Param("to") LocalDateTime to);
-
-  @Query(value = "SELECT EXTRACT(YEAR FROM w.start_hour) as y, EXTRACT(WEEK FROM w.start_hour) as w, " +
-      "CAST(SUM(EXTRACT(EPOCH FROM (w.end_hour - w.start_hour))/60) AS BIGINT) as duration " +
-      "FROM worktime w " +
-      "WHERE w.user_id = :userId " +
-      "AND w.start_hour < :to " +
-      "AND (w.end_hour IS NULL OR w.end_hour > :from) " +
-      "AND w.end_hour IS NOT NULL " +
-      "GROUP BY EXTRACT(YEAR FROM w.start_hour), EXTRACT(WEEK FROM w.start_hour)", nativeQuery = true)
-  List<Object[]> getTotalWorktimeByUserAndPeriodGroupByWeek(
+      @Param("to") LocalDateTime to,
+      @Param("interiorStart") LocalDateTime interiorStart,
+      @Param("interiorEnd") LocalDateTime interiorEnd);
+
+  @Query(value = "SELECT r.day as date, " +
+      "CAST(SUM(r.minutes) AS BIGINT) as duration " +
+      "FROM worktime_daily_rollup r " +
+      "WHERE r.user_id = :userId " +
+      "AND r.day BETWEEN :from AND :to " +
+      "GROUP BY r.day", nativeQuery = true)
+  List<Object[]> getTotalWorktimeFromRollupGroupByDay(
+      @Param("userId") Integer userId,
+      @Param("from") LocalDate from,
+      @Param("to") LocalDate to);
+
+  @Query(value = "SELECT EXTRACT(YEAR FROM r.day) as y, EXTRACT(WEEK FROM r.day) as w, " +
+      "CAST(SUM(r.minutes) AS BIGINT) as duration " +
+      "FROM worktime_daily_rollup r " +
+      "WHERE r.user_id = :userId " +
+      "AND r.day BETWEEN :from AND :to " +
+      "GROUP BY EXTRACT(YEAR FROM r.day), EXTRACT(WEEK FROM r.day)", nativeQuery = true)
+  List<Object[]> getTotalWorktimeFromRollupGroupByWeek(
+      @Param("userId") Integer userId,
+      @Param("from") LocalDate from,
+      @Param("to") LocalDate to);
+
+  @Query(value = "SELECT TO_CHAR(r.day, 'YYYY-MM') as period, " +
+      "CAST(SUM(r.minutes) AS BIGINT) as duration " +
+      "FROM worktime_daily_rollup r " +
+      "WHERE r.user_id = :userId " +
+      "AND r.day BETWEEN :from AND :to " +
+      "GROUP BY TO_CHAR(r.day, 'YYYY-MM')", nativeQuery = true)
+  List<Object[]> getTotalWorktimeFromRollupGroupByMonth(
+      @Param("userId") Integer userId,
+      @Param("from") LocalDate from,
+      @Param("to") LocalDate to);
+
+  // Totaux par période (jour "YYYY-MM-DD", semaine "YYYY-Sxx" ou mois "YYYY-MM" selon :type)
+  // des worktimes ponctuels des jours entiers :firstFullDay à :lastFullDay (agrégat journalier ;
+  // jours de bord : getEdgeWorktimesGroupByDayAndCategory) et des séries hebdomadaires simples,
+  // développées jour par jour avec generate_series en excluant les jours annulés.
+  // Mêmes règles que series_occurrence : jours de :firstDay à :lastDay bornés par les jours de
+  // début et de fin de la série ; jours exclus par toutes les exceptions liées à la série,
+  // sauf si la série ignore les exceptions.
+  @Query(value = "SELECT CASE " +
+      "    WHEN :type = 'year' THEN TO_CHAR(t.day, 'YYYY-MM') " +
+      "    WHEN :type = 'month' THEN CAST(EXTRACT(YEAR FROM t.day) AS INTEGER) || '-S' || " +
+      "        LPAD(CAST(CAST(EXTRACT(WEEK FROM t.day) AS INTEGER) AS TEXT), 2, '0') " +
+      "    ELSE TO_CHAR(t.day, 'YYYY-MM-DD') END as period, " +
+      "CAST(SUM(t.minutes) AS BIGINT) as duration " +
+      "FROM (" +
+      "    SELECT r.day as day, r.minutes as minutes " +
+      "    FROM worktime_daily_rollup r " +
+      "    WHERE r.user_id = :userId AND r.day BETWEEN :firstFullDay AND :lastFullDay " +
+      "    UNION ALL " +
+      "    SELECT CAST(d AS DATE) as day, FLOOR(EXTRACT(EPOCH FROM (s.end_hour - s.start_hour)) / 60) as minutes " +
+      "    FROM worktime_series s " +
+      "    CROSS JOIN LATERAL generate_series(" +
+      "        GREATEST(CAST(s.start_date AS DATE), CAST(:firstDay AS DATE)), " +
+      "        LEAST(COALESCE(CAST(s.end_date AS DATE), CAST(:lastDay AS DATE)), CAST(:lastDay AS DATE)), " +
+      "        INTERVAL '1 day') as d " +
+      "    WHERE s.user_id = :userId " +
+      "    AND (s.end_date IS NULL OR s.end_date >= :from) " +
+      "    AND s.start_date <= :to " +
+      "    AND " + WorkTimeSeriesRepository.SQL_EXPANDABLE_SERIES + " " +
+      "    AND (ARRAY['MO','TU','WE','TH','FR','SA','SU'])[CAST(EXTRACT(ISODOW FROM d) AS INTEGER)] " +
+      "        = ANY (string_to_array(substring(s.recurrence from 'BYDAY=([A-Z,]+)'), ',')) " +
+      "    AND NOT EXISTS (" +
+      "        SELECT 1 FROM recurrence_exception_series res " +
+      "        JOIN recurrence_exception e ON res.exception_id = e.id " +
+      "        WHERE res.series_id = s.id " +
+      "        AND s.ignore_exceptions IS NOT TRUE " +
+      "        AND CAST(d AS DATE) BETWEEN CAST(e.pause_start AS DATE) AND CAST(e.pause_end AS DATE)) " +
+      ") t " +
+      "GROUP BY 1", nativeQuery = true)
+  List<Object[]> getTotalWorktimeWithWeeklySeriesByPeriod(
       @Param("userId") Integer userId,
       @Param("from") LocalDateTime from,
-      @Param("to") LocalDateTime to);
+      @Param("to") LocalDateTime to,
+      @Param("firstDay") LocalDate firstDay,
+      @Param("lastDay") LocalDate lastDay,
+      @Param("firstFullDay") LocalDate firstFullDay,
+      @Param("lastFullDay") LocalDate lastFullDay,
+      @Param("type") String type);
 
 }
@@ -24,23 +24,40 @@ public class CategoryService {
     @Autowired
     WorktimeRepository worktimeRepository;
 
+    @Autowired
+    ScheduleCache scheduleCache;
+
+    @Autowired
+    StatsCache statsCache;
+
+    @Transactional(readOnly = true)
     public List<Category> findAllByUserId(Integer userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        System.out.println("USER" + user );
         return categoryRepository.findAllByUserOrderByNameAsc(user);
     }
 
     public Category save(Category category) {
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        // Le nom de la catégorie est affiché dans le planning et les statistiques
+        if (savedCategory.getUser() != null) {
+            scheduleCache.invalidateUser(savedCategory.getUser().getId());
+            statsCache.evictUser(savedCategory.getUser().getId());
+        }
+        return savedCategory;
     }
 
     @Transactional
     public void deleteCategory(Category category) {
         worktimeRepository.deleteByCategory(category);
         categoryRepository.delete(category);
+        if (category.getUser() != null) {
+            scheduleCache.invalidateUser(category.getUser().getId());
+            statsCache.evictUser(category.getUser().getId());
+        }
     }
 
+    @Transactional(readOnly = true)
     public Category findByIdAndUser(int id, User user) {
         return categoryRepository.findByIdAndUser(id, user).orElse(null);
     }
@@ -0,0 +1,200 @@
+package com.tempo.application.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tempo.application.model.worktime.Worktime;
+import com.tempo.application.model.worktimeSeries.WorktimeSeries;
+import com.tempo.application.repository.WorkTimeSeriesRepository;
+import com.tempo.application.repository.WorktimeRepository;
+import com.tempo.application.utils.CompiledRecurrence;
+import com.tempo.application.utils.ExceptionIntervals;
+import com.tempo.application.utils.LoggerUtils;
+import com.tempo.application.utils.OccurrenceCursor;
+import com.tempo.application.utils.RecurrenceUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Export de l'historique d'un utilisateur (worktimes et occurrences de séries) en CSV ou NDJSON.
+ *
+ * Les worktimes sont lus par un curseur JDBC (fetch size) et détachés au fur et à mesure,
+ * les occurrences de séries sont produites par le curseur de récurrence : la mémoire utilisée
+ * ne dépend pas de la taille de l'historique.
+ */
+@Service
+public class ExportService {
+
+    private static final Logger logger = LoggerUtils.getLogger(ExportService.class);
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final String CSV_HEADER = "type,id,date,start,end,minutes,category";
+
+    @Autowired
+    private WorktimeRepository worktimeRepository;
+
+    @Autowired
+    private WorkTimeSeriesRepository workTimeSeriesRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Écrit les worktimes terminés commençant dans [from, to[ puis les occurrences des séries
+     * sur la même période (jours d'exception exclus, comme dans les statistiques)
+     * @param format "csv" ou "ndjson"
+     */
+    public void export(Integer userId, LocalDateTime from, LocalDateTime to, String format, OutputStream output) {
+        if (!FORMAT_CSV.equalsIgnoreCase(format) && !FORMAT_NDJSON.equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+        boolean csv = FORMAT_CSV.equalsIgnoreCase(format);
+        LoggerUtils.info(logger, "Exporting worktimes for user " + userId + " from " + from + " to " + to + " as " + format);
+
+        // Appelé hors du thread de la requête (StreamingResponseBody) : transaction explicite,
+        // nécessaire au curseur PostgreSQL
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                if (csv) {
+                    writer.write(CSV_HEADER);
+                    writer.write('\n');
+                }
+                writeWorktimes(userId, from, to, csv, writer);
+                writeSeriesOccurrences(userId, from, to, csv, writer);
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeWorktimes(Integer userId, LocalDateTime from, LocalDateTime to, boolean csv, Writer writer) throws IOException {
+        try (Stream<Worktime> worktimes = worktimeRepository.streamFinishedByUserIdAndPeriod(userId, from, to)) {
+            var iterator = worktimes.iterator();
+            while (iterator.hasNext()) {
+                Worktime worktime = iterator.next();
+                writeRow(writer, csv, "worktime", (long) worktime.getId(),
+                        worktime.getStartHour().toLocalDate(),
+                        worktime.getStartHour(),
+                        worktime.getEndHour(),
+                        worktime.getDuration(),
+                        worktime.getCategory() != null ? worktime.getCategory().getName() : null);
+                // Garder le contexte de persistance constant
+                entityManager.detach(worktime);
+            }
+        }
+    }
+
+    private void writeSeriesOccurrences(Integer userId, LocalDateTime from, LocalDateTime to, boolean csv, Writer writer) throws IOException {
+        if (!to.isAfter(from)) {
+            return;
+        }
+        // Dernier jour pouvant porter une occurrence commençant avant 'to' (borne exclue)
+        LocalDate lastDay = to.minusNanos(1).toLocalDate();
+        for (WorktimeSeries series : workTimeSeriesRepository.findByUserIdAndPeriodWithExceptions(userId, from, to)) {
+            if (series.getStartHour() == null || series.getEndHour() == null) {
+                continue;
+            }
+            LocalDate seriesLastDay = series.getEndDate() != null && series.getEndDate().toLocalDate().isBefore(lastDay)
+                    ? series.getEndDate().toLocalDate()
+                    : lastDay;
+            LocalTime startTime = series.getStartHour().toLocalTime();
+            // Durée de la série : une occurrence peut se terminer le lendemain
+            Duration length = Duration.between(series.getStartHour(), series.getEndHour());
+            ExceptionIntervals excludedDays = ExceptionIntervals.excludedDaysOf(series);
+            String categoryName = series.getCategory() != null ? series.getCategory().getName() : null;
+
+            OccurrenceCursor cursor = RecurrenceUtils.occurrences(
+                    CompiledRecurrence.of(series.getRecurrence()),
+                    series.getStartDate().toLocalDate().toEpochDay(),
+                    from.toLocalDate().toEpochDay(),
+                    seriesLastDay.toEpochDay());
+            while (cursor.hasNext()) {
+                long day = cursor.nextEpochDay();
+                if (excludedDays.contains(day)) {
+                    continue;
+                }
+                LocalDate date = LocalDate.ofEpochDay(day);
+                LocalDateTime start = date.atTime(startTime);
+                // Même période que les worktimes : début dans [from, to[
+                if (start.isBefore(from) || !start.isBefore(to)) {
+                    continue;
+                }
+                writeRow(writer, csv, "series", series.getId(), date,
+                        start,
+                        start.plus(length),
+                        series.getDuration(),
+                        categoryName);
+            }
+        }
+    }
+
+    private void writeRow(Writer writer, boolean csv, String type, Long id, LocalDate date,
+                          LocalDateTime start, LocalDateTime end, Long minutes, String category) throws IOException {
+        if (csv) {
+            writer.write(type);
+            writer.write(',');
+            writer.write(String.valueOf(id));
+            writer.write(',');
+            writer.write(date.toString());
+            writer.write(',');
+            writer.write(start.toString());
+            writer.write(',');
+            writer.write(end.toString());
+            writer.write(',');
+            writer.write(minutes != null ? minutes.toString() : "");
+            writer.write(',');
+            writer.write(csvField(category));
+        } else {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("type", type);
+            row.put("id", id);
+            row.put("date", date.toString());
+            row.put("start", start.toString());
+            row.put("end", end.toString());
+            row.put("minutes", minutes);
+            row.put("category", category);
+            writer.write(objectMapper.writeValueAsString(row));
+        }
+        writer.write('\n');
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -29,24 +29,34 @@ public class RecurrenceExceptionService {
     @Autowired
     private WorkTimeSeriesRepository workTimeSeriesRepository;
 
+    @Autowired
+    private ScheduleCache scheduleCache;
+
+    @Autowired
+    private SeriesOccurrenceService seriesOccurrenceService;
+
+    @Autowired
+    private StatsCache statsCache;
+
     /**
      * Crée une nouvelle exception de récurrence (période de pause)
      * 
      * @param pauseStart Date de début de la pause
      * @param pauseEnd   Date de fin de la pause
+     * @param userId     L'ID de l'utilisateur : seules ses séries sont liées à l'exception
      * @return L'exception créée
      */
     @Transactional
-    public RecurrenceException createRecurrenceException(LocalDateTime pauseStart, LocalDateTime pauseEnd) {
+    public RecurrenceException createRecurrenceException(LocalDateTime pauseStart, LocalDateTime pauseEnd, Integer userId) {
         LoggerUtils.info(logger, "Creating new recurrence exception");
 
         if (pauseStart != null && pauseEnd != null && pauseStart.isAfter(pauseEnd)) {
             throw new IllegalArgumentException("Start date must be before end date.");
         }
 
-        // Vérifier s'il existe déjà des exceptions qui se chevauchent
-        List<RecurrenceException> overlappingExceptions = recurrenceExceptionRepository.findOverlappingExceptions(
-                pauseStart, pauseEnd);
+        // Vérifier s'il existe déjà des exceptions de l'utilisateur qui se chevauchent
+        List<RecurrenceException> overlappingExceptions = recurrenceExceptionRepository.findOverlappingExceptionsByUserId(
+                userId, pauseStart, pauseEnd);
 
         if (!overlappingExceptions.isEmpty()) {
             RecurrenceException existingException = overlappingExceptions.get(0);
@@ -60,43 +70,29 @@ public class RecurrenceExceptionService {
         RecurrenceException newException = RecurrenceException.builder()
                 .pauseStart(pauseStart)
                 .pauseEnd(pauseEnd)
+                .userId(userId)
                 .series(new ArrayList<>())
                 .build();
 
         // Sauvegarder l'exception pour obtenir son ID
         RecurrenceException savedException = recurrenceExceptionRepository.save(newException);
 
-        // Rechercher toutes les séries qui pourraient être concernées par cette
-        // exception
-        List<WorktimeSeries> overlappingSeries = workTimeSeriesRepository.findAll().stream()
-                .filter(series -> {
-                    // Ignorer les séries qui ont ignoreExceptions à true
-                    if (Boolean.TRUE.equals(series.getIgnoreExceptions())) {
-                        return false;
-                    }
-
-                    // Vérifier si la série est active pendant la période de l'exception
-                    boolean isActiveStart = series.getStartDate().isBefore(pauseEnd);
-                    boolean isActiveEnd = series.getEndDate() == null || series.getEndDate().isAfter(pauseStart);
-
-                    return isActiveStart && isActiveEnd;
-                })
-                .toList();
+        // Lier en SQL les séries de l'utilisateur actives pendant la pause
+        // (hors séries qui ignorent les exceptions)
+        int linkedCount = workTimeSeriesRepository.linkExceptionToActiveSeries(
+                savedException.getId(), userId, pauseStart, pauseEnd);
 
-        if (!overlappingSeries.isEmpty()) {
+        if (linkedCount > 0) {
             LoggerUtils.info(logger, String.format(
                     "Found %d series that overlap with this exception period",
-                    overlappingSeries.size()));
-
-            // Mettre à jour les relations
-            savedException.getSeries().addAll(overlappingSeries);
-            for (WorktimeSeries series : overlappingSeries) {
-                series.getExceptions().add(savedException);
-            }
-
-            // Sauvegarder les mises à jour
-            workTimeSeriesRepository.saveAll(overlappingSeries);
-            savedException = recurrenceExceptionRepository.save(savedException);
+                    linkedCount));
+
+            // Contexte vidé par l'insertion : exception rechargée avec ses séries liées
+            savedException = recurrenceExceptionRepository.findById(savedException.getId().intValue())
+                    .orElseThrow(() -> new RuntimeException("Recurrence exception not found after linking."));
+            List<WorktimeSeries> overlappingSeries = savedException.getSeries();
+            seriesOccurrenceService.refreshCancellations(overlappingSeries, pauseStart, pauseEnd);
+            invalidateSchedules(overlappingSeries, pauseStart, pauseEnd);
         }
 
         return savedException;
@@ -154,6 +150,7 @@ public class RecurrenceExceptionService {
                 .pauseEnd(pauseEnd)
                 .exceptionType(ExceptionType.WORKTIME_SERIES)
                 .targetSeriesId(seriesId)
+                .userId(userId)
                 .series(new ArrayList<>())
                 .build();
 
@@ -167,6 +164,9 @@ public class RecurrenceExceptionService {
         // Sauvegarder les modifications
         recurrenceExceptionRepository.save(savedException);
         workTimeSeriesRepository.save(series);
+        seriesOccurrenceService.refreshCancellations(List.of(series), pauseStart, pauseEnd);
+        scheduleCache.invalidate(userId, date, date);
+        statsCache.evictUser(userId);
 
         return savedException;
     }
@@ -213,6 +213,9 @@ public class RecurrenceExceptionService {
 
             // Supprimer l'exception
             recurrenceExceptionRepository.delete(exception);
+            seriesOccurrenceService.refreshCancellations(List.of(series), startOfDay, startOfDay);
+            scheduleCache.invalidate(userId, date, date);
+            statsCache.evictUser(userId);
 
             LoggerUtils.info(logger, "Reactivated worktime series " + seriesId + " for date " + date);
             return null; // Indique une réactivation
@@ -265,6 +268,9 @@ public class RecurrenceExceptionService {
 
         // Supprimer l'exception
         recurrenceExceptionRepository.delete(exception);
+        seriesOccurrenceService.refreshCancellations(List.of(series), startOfDay, startOfDay);
+        scheduleCache.invalidate(userId, date, date);
+        statsCache.evictUser(userId);
     }
 
     /**
@@ -318,6 +324,9 @@ public class RecurrenceExceptionService {
 
         workTimeSeriesRepository.save(series);
         recurrenceExceptionRepository.save(exception);
+        seriesOccurrenceService.refreshCancellations(List.of(series), exception.getPauseStart(), exception.getPauseEnd());
+        scheduleCache.invalidate(userId, exception.getPauseStart(), exception.getPauseEnd());
+        statsCache.evictUser(userId);
     }
 
     /**
@@ -337,12 +346,7 @@ public class RecurrenceExceptionService {
         RecurrenceException existingException = recurrenceExceptionRepository.findById(id.intValue())
                 .orElseThrow(() -> new RuntimeException("Recurrence exception not found with id: " + id));
 
-        // Vérifier que l'utilisateur est le propriétaire d'au moins une des séries
-        // associées
-        boolean isAuthorized = existingException.getSeries().stream()
-                .anyMatch(series -> series.getUser().getId().equals(userId));
-
-        if (!isAuthorized) {
+        if (!isOwnedBy(existingException, userId)) {
             throw new IllegalArgumentException("You can only update exceptions for your own series.");
         }
 
@@ -357,11 +361,20 @@ public class RecurrenceExceptionService {
             throw new IllegalArgumentException("Start date must be before end date.");
         }
 
+        // Invalider l'ancienne et la nouvelle période pour toutes les séries liées
+        invalidateSchedules(existingException.getSeries(), existingException.getPauseStart(), existingException.getPauseEnd());
+        invalidateSchedules(existingException.getSeries(), start, end);
+
         // Mise à jour des propriétés
+        LocalDateTime previousStart = existingException.getPauseStart();
+        LocalDateTime previousEnd = existingException.getPauseEnd();
         existingException.setPauseStart(start);
         existingException.setPauseEnd(end);
 
-        return recurrenceExceptionRepository.save(existingException);
+        RecurrenceException savedException = recurrenceExceptionRepository.save(existingException);
+        seriesOccurrenceService.refreshCancellations(existingException.getSeries(), previousStart, previousEnd);
+        seriesOccurrenceService.refreshCancellations(existingException.getSeries(), start, end);
+        return savedException;
     }
 
     /**
@@ -377,12 +390,7 @@ public class RecurrenceExceptionService {
         RecurrenceException exception = recurrenceExceptionRepository.findById(id.intValue())
                 .orElseThrow(() -> new RuntimeException("Recurrence exception not found with id: " + id));
 
-        // Vérifier que l'utilisateur est le propriétaire d'au moins une des séries
-        // associées
-        boolean isAuthorized = exception.getSeries().stream()
-                .anyMatch(series -> series.getUser().getId().equals(userId));
-
-        if (!isAuthorized) {
+        if (!isOwnedBy(exception, userId)) {
             throw new IllegalArgumentException("You can only delete exceptions for your own series.");
         }
 
@@ -391,10 +399,24 @@ public class RecurrenceExceptionService {
             series.getExceptions().remove(exception);
         }
         workTimeSeriesRepository.saveAll(exception.getSeries());
+        seriesOccurrenceService.refreshCancellations(exception.getSeries(), exception.getPauseStart(), exception.getPauseEnd());
+        invalidateSchedules(exception.getSeries(), exception.getPauseStart(), exception.getPauseEnd());
 
         recurrenceExceptionRepository.delete(exception);
     }
 
+    /**
+     * Indique si l'exception appartient à l'utilisateur : d'après son propriétaire (user_id),
+     * ou, pour les exceptions antérieures sans propriétaire, d'après les séries liées
+     */
+    private boolean isOwnedBy(RecurrenceException exception, Integer userId) {
+        if (exception.getUserId() != null) {
+            return exception.getUserId().equals(userId);
+        }
+        return exception.getSeries().stream()
+                .anyMatch(series -> series.getUser().getId().equals(userId));
+    }
+
     /**
      * Récupère une exception de récurrence par son ID
      * 
@@ -415,6 +437,7 @@ public class RecurrenceExceptionService {
      * @param userId   L'ID de l'utilisateur pour vérification d'autorisation
      * @return La liste des exceptions pour cette série
      */
+    @Transactional(readOnly = true)
     public List<RecurrenceException> getExceptionsBySeriesId(Long seriesId, Integer userId) {
         LoggerUtils.info(logger, "Fetching recurrence exceptions for series id: " + seriesId);
 
@@ -437,10 +460,24 @@ public class RecurrenceExceptionService {
      * @return La liste des exceptions de type DAY liées à l'utilisateur et celles
      *         sans séries
      */
+    @Transactional(readOnly = true)
     public List<RecurrenceException> getAllRecurrenceExceptionsByUserId(Integer userId) {
         LoggerUtils.info(logger, "Fetching all DAY recurrence exceptions for user: " + userId);
         return recurrenceExceptionRepository.findAllByUserIdOrWithoutSeries(userId).stream()
                 .filter(exception -> exception.getExceptionType() == ExceptionType.DAY)
                 .toList();
     }
-}
\ No newline at end of file
+
+    /**
+     * Invalide les plannings et statistiques en cache des propriétaires des séries sur la période donnée
+     */
+    private void invalidateSchedules(List<WorktimeSeries> series, LocalDateTime start, LocalDateTime end) {
+        series.stream()
+                .map(s -> s.getUser().getId())
+                .distinct()
+                .forEach(userId -> {
+                    scheduleCache.invalidate(userId, start, end);
+                    statsCache.evictUser(userId);
+                });
+    }
+}
@@ -0,0 +1,191 @@
+package com.tempo.application.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.tempo.application.utils.LoggerUtils;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache des plannings calculés, indexé par (utilisateur, fenêtre de dates, vue).
+ *
+ * Cache Caffeine enregistré dans le CacheManager (métriques communes avec les statistiques),
+ * borné en nombre d'entrées et avec une durée de vie. L'invalidation est ciblée : un index
+ * des clés par utilisateur évite de parcourir tout le cache, et seules les entrées dont la
+ * fenêtre chevauche la plage modifiée sont supprimées.
+ *
+ * Une génération par utilisateur, incrémentée à chaque invalidation (immédiate puis après
+ * le commit), empêche un calcul commencé avant l'écriture de remettre en cache l'état précédent.
+ *
+ * Les valeurs mises en cache sont partagées entre les requêtes : ne pas les modifier.
+ */
+@Component
+public class ScheduleCache {
+
+    private static final Logger logger = LoggerUtils.getLogger(ScheduleCache.class);
+
+    public static final String SCHEDULES = "schedules";
+
+    private record Key(Integer userId, LocalDate from, LocalDate to, String view) {
+    }
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${app.schedule.cache.max-entries:5000}")
+    private long maxEntries;
+
+    @Value("${app.schedule.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private Cache<Object, Object> entries;
+
+    // Clés en cache par utilisateur, tenues à jour à l'insertion et à l'éviction par Caffeine
+    private final Map<Integer, Set<Key>> keysByUser = new ConcurrentHashMap<>();
+
+    private final Map<Integer, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .evictionListener((Object key, Object value, RemovalCause cause) -> {
+                    if (key instanceof Key evicted) {
+                        unindex(evicted);
+                    }
+                })
+                .recordStats()
+                .build();
+        if (cacheManager instanceof CaffeineCacheManager caffeineCacheManager) {
+            caffeineCacheManager.registerCustomCache(SCHEDULES, entries);
+        }
+    }
+
+    /**
+     * Retourne le planning en cache ou le calcule via loader
+     * @param userId l'utilisateur
+     * @param from premier jour de la fenêtre
+     * @param to dernier jour de la fenêtre (inclus)
+     * @param view le type de planning (ex. "window", "month")
+     * @param loader calcul du planning en cas d'absence
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Integer userId, LocalDate from, LocalDate to, String view, Supplier<T> loader) {
+        Key key = new Key(userId, from, to, view);
+        Object cached = entries.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+
+        AtomicLong generation = generation(userId);
+        long before = generation.get();
+        T value = loader.get();
+        if (value == null || generation.get() != before) {
+            return value;
+        }
+        entries.put(key, value);
+        keysByUser.compute(userId, (id, keys) -> {
+            Set<Key> indexed = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            indexed.add(key);
+            return indexed;
+        });
+        // Une invalidation a pu passer entre le contrôle et l'insertion : elle n'a pas vu la clé
+        if (generation.get() != before) {
+            entries.invalidate(key);
+            unindex(key);
+        }
+        return value;
+    }
+
+    /**
+     * Invalide les plannings de l'utilisateur qui chevauchent [start, end]
+     * @param end null pour une plage sans fin (série sans date de fin)
+     */
+    public void invalidate(Integer userId, LocalDateTime start, LocalDateTime end) {
+        invalidate(userId,
+                start != null ? start.toLocalDate() : null,
+                end != null ? end.toLocalDate() : null);
+    }
+
+    /**
+     * Invalide les plannings de l'utilisateur qui chevauchent [from, to]
+     * @param from null pour une plage sans début
+     * @param to null pour une plage sans fin
+     */
+    public void invalidate(Integer userId, LocalDate from, LocalDate to) {
+        if (userId == null) {
+            return;
+        }
+        runAfterCommit(() -> evict(userId, from, to));
+    }
+
+    /**
+     * Invalide tous les plannings de l'utilisateur (chrono en cours, catégorie renommée...)
+     */
+    public void invalidateUser(Integer userId) {
+        invalidate(userId, (LocalDate) null, (LocalDate) null);
+    }
+
+    private void evict(Integer userId, LocalDate from, LocalDate to) {
+        generation(userId).incrementAndGet();
+        Set<Key> keys = keysByUser.get(userId);
+        if (keys == null) {
+            return;
+        }
+        int removed = 0;
+        Iterator<Key> iterator = keys.iterator();
+        while (iterator.hasNext()) {
+            Key key = iterator.next();
+            if ((to == null || !key.from().isAfter(to))
+                    && (from == null || !key.to().isBefore(from))) {
+                iterator.remove();
+                entries.invalidate(key);
+                removed++;
+            }
+        }
+        logger.debug("Evicted {} schedule entries for user {} between {} and {}", removed, userId, from, to);
+    }
+
+    private void unindex(Key key) {
+        keysByUser.computeIfPresent(key.userId(), (id, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private AtomicLong generation(Integer userId) {
+        return generations.computeIfAbsent(userId, id -> new AtomicLong());
+    }
+
+    private void runAfterCommit(Runnable action) {
+        // Invalidation immédiate, puis à nouveau après le commit si une transaction est en cours
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+}
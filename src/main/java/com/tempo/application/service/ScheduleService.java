@@ -2,20 +2,33 @@ package com.tempo.application.service;
 
 import com.tempo.application.model.schedule.ScheduleDateEntryDTO;
 import com.tempo.application.model.schedule.ScheduleEntryDTO;
+import com.tempo.application.model.schedule.ScheduleMonthDTO;
+import com.tempo.application.model.schedule.ScheduleSeriesMonthDTO;
 import com.tempo.application.model.schedule.ScheduleThreeDaysDTO;
 import com.tempo.application.model.worktime.Worktime;
 import com.tempo.application.model.worktimeSeries.WorktimeSeries;
-import com.tempo.application.model.recurrenceException.ExceptionType;
+import com.tempo.application.repository.WorkTimeSeriesRepository;
+import com.tempo.application.repository.WorktimeRepository;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.tempo.application.utils.CompiledRecurrence;
+import com.tempo.application.utils.ExceptionIntervals;
 import com.tempo.application.utils.LoggerUtils;
+import com.tempo.application.utils.OccurrenceCursor;
+import com.tempo.application.utils.RecurrenceUtils;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,6 +42,19 @@ public class ScheduleService {
     @Autowired
     private WorktimeSeriesService worktimeSeriesService;
 
+    @Autowired
+    private WorktimeRepository worktimeRepository;
+
+    @Autowired
+    private WorkTimeSeriesRepository workTimeSeriesRepository;
+
+    @Autowired
+    private ScheduleCache scheduleCache;
+
+    // Source des jours du calendrier mensuel : "rule" (règle développée en Java) ou "materialized"
+    @Value("${app.schedule.engine:rule}")
+    private String scheduleEngine;
+
     /**
      * Récupère toutes les entrées de planification (Worktime et WorktimeSeries)
      * pour une date donnée et un utilisateur
@@ -37,45 +63,78 @@ public class ScheduleService {
      * @param userId L'ID de l'utilisateur
      * @return Une liste combinée des entrées de planification
      */
+    @Transactional(readOnly = true)
     public List<ScheduleEntryDTO> getUserScheduleByDate(LocalDate date, Integer userId) {
-        LoggerUtils.info(logger, "Fetching user schedule for date: " + date + " and user id: " + userId);
-
-        List<Worktime> worktimes = worktimeService.getAllUserWorktimesByDateAndUserId(date, userId);
+        return getUserScheduleForWindow(date, date, userId).get(date);
+    }
 
-        List<ScheduleEntryDTO> schedule = new ArrayList<>();
+    /**
+     * Récupère les entrées de planification de chaque jour de la fenêtre [from, to]
+     * en un nombre fixe de requêtes (worktimes, séries avec exceptions, chronos en cours),
+     * quel que soit le nombre de jours. L'utilisateur n'est pas rechargé : seul son id est utilisé.
+     *
+     * @param from   Premier jour de la fenêtre
+     * @param to     Dernier jour de la fenêtre (inclus)
+     * @param userId L'ID de l'utilisateur
+     * @return Les entrées triées par heure de début, indexées par jour (dans l'ordre chronologique)
+     */
+    @Transactional(readOnly = true)
+    public Map<LocalDate, List<ScheduleEntryDTO>> getUserScheduleForWindow(LocalDate from, LocalDate to, Integer userId) {
+        return scheduleCache.get(userId, from, to, "window", () -> loadUserScheduleForWindow(from, to, userId));
+    }
 
-        // Convertir les worktimes en DTOs
-        List<ScheduleEntryDTO> worktimeDTOs = worktimes.stream()
-                .filter(worktime -> worktime.getEndHour() != null) // Exclure les chronos en cours pour éviter la
-                                                                   // duplication
-                .map(ScheduleEntryDTO::fromWorktime)
-                .filter(java.util.Objects::nonNull)
-                .collect(Collectors.toList());
+    private Map<LocalDate, List<ScheduleEntryDTO>> loadUserScheduleForWindow(LocalDate from, LocalDate to, Integer userId) {
+        LoggerUtils.info(logger, "Fetching user schedule from " + from + " to " + to + " for user id: " + userId);
+        LocalDateTime windowStart = from.atStartOfDay();
+        LocalDateTime windowEnd = to.plusDays(1).atStartOfDay();
 
-        schedule.addAll(worktimeDTOs);
+        Map<LocalDate, List<ScheduleEntryDTO>> schedule = new LinkedHashMap<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            schedule.put(day, new ArrayList<>());
+        }
 
-        // Récupérer les séries récurrentes actives pour cette date
-        List<WorktimeSeries> activeSeries = worktimeSeriesService.getActiveWorkTimeSeriesForDateAndUser(date, userId);
-
-        // Filtrer les séries par jour de la semaine
-        List<WorktimeSeries> filteredSeries = filterSeriesByDayOfWeek(activeSeries, date);
-
-        // Convertir les séries filtrées en DTOs et marquer celles qui sont annulées
-        List<ScheduleEntryDTO> workTimeSeriesDTOs = filteredSeries.stream()
-                .map(series -> {
-                    ScheduleEntryDTO dto = ScheduleEntryDTO.fromWorkTimeSeries(series);
-                    // Vérifier si cette série est annulée pour cette date
-                    boolean isCancelled = isSeriesCancelledForDate(series, date);
-                    dto.setIsCancelled(isCancelled);
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        // Worktimes terminés : ajoutés à chaque jour qu'ils chevauchent
+        // (les chronos en cours sont exclus par la requête pour éviter la duplication)
+        // Borne basse sur start_hour : aucun worktime terminé ne dure plus que findMaxWorktimeMinutes
+        LocalDateTime startLowerBound = windowStart.minusMinutes(worktimeRepository.findMaxWorktimeMinutes(userId));
+        List<Worktime> worktimes = worktimeRepository.findOverlappingWorktimesByUserIdAndPeriod(userId, startLowerBound, windowStart, windowEnd);
+        for (Worktime worktime : worktimes) {
+            ScheduleEntryDTO dto = ScheduleEntryDTO.fromWorktime(worktime);
+            LocalDate day = worktime.getStartHour().toLocalDate().isAfter(from) ? worktime.getStartHour().toLocalDate() : from;
+            for (; !day.isAfter(to) && day.atStartOfDay().isBefore(worktime.getEndHour()); day = day.plusDays(1)) {
+                schedule.get(day).add(dto);
+            }
+        }
 
-        schedule.addAll(workTimeSeriesDTOs);
+        // Séries récurrentes : un seul parcours des occurrences par série sur toute la fenêtre
+        List<WorktimeSeries> activeSeries = workTimeSeriesRepository.findByUserIdAndPeriodWithExceptions(userId, windowStart, windowEnd);
+        for (WorktimeSeries series : activeSeries) {
+            if (series.getRecurrence() == null || series.getRecurrence().isEmpty()) {
+                continue;
+            }
+            LocalDate lastDay = series.getEndDate() != null && series.getEndDate().toLocalDate().isBefore(to)
+                    ? series.getEndDate().toLocalDate()
+                    : to;
+            OccurrenceCursor cursor = RecurrenceUtils.occurrences(
+                    CompiledRecurrence.of(series.getRecurrence()),
+                    series.getStartDate().toLocalDate().toEpochDay(),
+                    from.toEpochDay(),
+                    lastDay.toEpochDay());
+            if (!cursor.hasNext()) {
+                continue;
+            }
+            // Index des annulations de la série construit une fois, interrogé par occurrence
+            ExceptionIntervals cancellations = ExceptionIntervals.cancelledDaysOf(series);
+            while (cursor.hasNext()) {
+                long epochDay = cursor.nextEpochDay();
+                ScheduleEntryDTO dto = ScheduleEntryDTO.fromWorkTimeSeries(series);
+                dto.setIsCancelled(cancellations.contains(epochDay));
+                schedule.get(LocalDate.ofEpochDay(epochDay)).add(dto);
+            }
+        }
 
-        // Récupérer les créneaux en cours (endTime = null)
-        List<Worktime> ongoingWorktimes = worktimeService.getOngoingWorktimesByUserId(userId);
-        List<ScheduleEntryDTO> ongoingWorktimeDTOs = ongoingWorktimes.stream()
+        // Créneaux en cours (endTime = null) : affichés sur chaque jour
+        List<ScheduleEntryDTO> ongoingWorktimeDTOs = worktimeRepository.findOngoingByUserId(userId).stream()
                 .map(worktime -> ScheduleEntryDTO.builder()
                         .id((long) worktime.getId())
                         .type("CHRONO")
@@ -85,69 +144,15 @@ public class ScheduleService {
                         .build())
                 .collect(Collectors.toList());
 
-        schedule.addAll(ongoingWorktimeDTOs);
-
         // Trier par heure de début
-        return schedule.stream()
-                .sorted(Comparator.comparing(
-                        entry -> entry.getStartHour() != null ? entry.getStartHour().toLocalTime() : null,
-                        Comparator.nullsLast(Comparator.naturalOrder())))
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Filtre une liste de séries récurrentes pour ne conserver que celles qui sont
-     * actives
-     * pour le jour de la semaine spécifié dans la date
-     * 
-     * @param series La liste des séries à filtrer
-     * @param date   La date pour laquelle vérifier l'activité
-     * @return Une liste filtrée de séries actives pour ce jour
-     */
-    private List<WorktimeSeries> filterSeriesByDayOfWeek(List<WorktimeSeries> series, LocalDate date) {
-        DayOfWeek dayOfWeek = date.getDayOfWeek();
-        String dayCode = getDayCode(dayOfWeek);
-
-        return series.stream()
-                .filter(s -> {
-                    String recurrenceRule = s.getRecurrence();
-                    if (recurrenceRule == null || recurrenceRule.isEmpty()) {
-                        return false;
-                    }
-                    if (recurrenceRule.contains("BYDAY=")) {
-                        String byday = recurrenceRule.substring(recurrenceRule.indexOf("BYDAY=") + 6);
-                        if (byday.contains(";")) {
-                            byday = byday.substring(0, byday.indexOf(";"));
-                        }
-                        return byday.contains(dayCode);
-                    }
-                    return true;
-                })
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Convertit un DayOfWeek Java en code de jour RFC5545 (MO, TU, WE, etc.)
-     */
-    private String getDayCode(DayOfWeek dayOfWeek) {
-        switch (dayOfWeek) {
-            case MONDAY:
-                return "MO";
-            case TUESDAY:
-                return "TU";
-            case WEDNESDAY:
-                return "WE";
-            case THURSDAY:
-                return "TH";
-            case FRIDAY:
-                return "FR";
-            case SATURDAY:
-                return "SA";
-            case SUNDAY:
-                return "SU";
-            default:
-                return "";
+        Comparator<ScheduleEntryDTO> byStartTime = Comparator.comparing(
+                entry -> entry.getStartHour() != null ? entry.getStartHour().toLocalTime() : null,
+                Comparator.nullsLast(Comparator.naturalOrder()));
+        for (List<ScheduleEntryDTO> entries : schedule.values()) {
+            entries.addAll(ongoingWorktimeDTOs);
+            entries.sort(byStartTime);
         }
+        return schedule;
     }
 
     /**
@@ -158,7 +163,13 @@ public class ScheduleService {
      * @param userId L'ID de l'utilisateur
      * @return Une liste combinée des entrées de planification du mois
      */
+    @Transactional(readOnly = true)
     public List<ScheduleDateEntryDTO> getUserScheduleByMonth(LocalDate date, Integer userId) {
+        return scheduleCache.get(userId, date.withDayOfMonth(1), date.withDayOfMonth(date.lengthOfMonth()), "month",
+                () -> loadUserScheduleByMonth(date, userId));
+    }
+
+    private List<ScheduleDateEntryDTO> loadUserScheduleByMonth(LocalDate date, Integer userId) {
         LoggerUtils.info(logger, "Getting schedule for month: " + date.getMonth() + " and user id: " + userId);
         List<ScheduleDateEntryDTO> schedule = new ArrayList<>();
 
@@ -186,30 +197,122 @@ public class ScheduleService {
         return schedule;
     }
 
-    public ScheduleThreeDaysDTO getUserScheduleForThreeDays(LocalDate date, Integer userId) {
-        LoggerUtils.info(logger, "Getting schedule for three days around: " + date + " for user id: " + userId);
+    /**
+     * Récupère le planning d'un mois entièrement développé : une entrée par worktime et,
+     * pour chaque série active, le masque des jours où elle a lieu et celui des jours annulés.
+     * Jours annulés comptés comme dans les statistiques (colonne cancelled de series_occurrence) :
+     * toutes les exceptions de la série, aucune si elle ignore les exceptions.
+     *
+     * @param date   Une date du mois pour lequel récupérer le planning
+     * @param userId L'ID de l'utilisateur
+     * @return Le planning du mois
+     */
+    @Transactional(readOnly = true)
+    public ScheduleMonthDTO getUserExpandedScheduleByMonth(LocalDate date, Integer userId) {
+        return scheduleCache.get(userId, date.withDayOfMonth(1), date.withDayOfMonth(date.lengthOfMonth()), "monthExpanded",
+                () -> loadUserExpandedScheduleByMonth(date, userId));
+    }
 
-        return ScheduleThreeDaysDTO.builder()
-                .yesterday(getUserScheduleByDate(date.minusDays(1), userId))
-                .today(getUserScheduleByDate(date, userId))
-                .tomorrow(getUserScheduleByDate(date.plusDays(1), userId))
+    private ScheduleMonthDTO loadUserExpandedScheduleByMonth(LocalDate date, Integer userId) {
+        LoggerUtils.info(logger, "Getting expanded schedule for month: " + date.getMonth() + " and user id: " + userId);
+        LocalDate firstDay = date.withDayOfMonth(1);
+        LocalDate lastDay = date.withDayOfMonth(date.lengthOfMonth());
+
+        List<ScheduleDateEntryDTO> worktimeDTOs = worktimeService.getAllUserWorktimesByMonthAndUserId(date, userId).stream()
+                .map(ScheduleDateEntryDTO::fromWorktime)
+                .collect(Collectors.toList());
+
+        List<WorktimeSeries> activeSeries = worktimeSeriesService.getActiveWorkTimeSeriesForMonthAndUser(date, userId);
+        List<ScheduleSeriesMonthDTO> seriesDTOs = "materialized".equalsIgnoreCase(scheduleEngine)
+                && workTimeSeriesRepository.countSeriesNotMaterializedUntil(userId, firstDay.atStartOfDay(),
+                        lastDay.plusDays(1).atStartOfDay(), lastDay) == 0
+                ? materializedSeriesMonth(activeSeries, firstDay, lastDay, userId)
+                : expandSeriesMonth(activeSeries, firstDay, lastDay);
+
+        return ScheduleMonthDTO.builder()
+                .month(YearMonth.from(date).toString())
+                .lengthOfMonth(date.lengthOfMonth())
+                .worktimes(worktimeDTOs)
+                .series(seriesDTOs)
                 .build();
     }
 
     /**
-     * Vérifie si une WorktimeSeries est annulée pour une date donnée
-     * 
-     * @param series La série à vérifier
-     * @param date   La date à vérifier
-     * @return true si la série est annulée pour cette date, false sinon
+     * Jours du mois de chaque série, calculés en développant sa règle de récurrence
      */
-    private boolean isSeriesCancelledForDate(WorktimeSeries series, LocalDate date) {
-        // Vérifier s'il existe une exception de type WORKTIME_SERIES pour cette série
-        // et cette date
-        return series.getExceptions().stream()
-                .anyMatch(exception -> exception.getExceptionType() == ExceptionType.WORKTIME_SERIES &&
-                        exception.getTargetSeriesId() != null &&
-                        exception.getTargetSeriesId().equals(series.getId()) &&
-                        exception.getPauseStart().toLocalDate().equals(date));
+    private List<ScheduleSeriesMonthDTO> expandSeriesMonth(List<WorktimeSeries> activeSeries, LocalDate firstDay, LocalDate lastDay) {
+        List<ScheduleSeriesMonthDTO> seriesDTOs = new ArrayList<>();
+        for (WorktimeSeries series : activeSeries) {
+            LocalDate seriesLastDay = series.getEndDate() != null && series.getEndDate().toLocalDate().isBefore(lastDay)
+                    ? series.getEndDate().toLocalDate()
+                    : lastDay;
+            OccurrenceCursor cursor = RecurrenceUtils.occurrences(
+                    CompiledRecurrence.of(series.getRecurrence()),
+                    series.getStartDate().toLocalDate().toEpochDay(),
+                    firstDay.toEpochDay(),
+                    seriesLastDay.toEpochDay());
+            if (!cursor.hasNext()) {
+                continue;
+            }
+            ExceptionIntervals cancellations = ExceptionIntervals.excludedDaysOf(series);
+
+            int days = 0;
+            int cancelledDays = 0;
+            long monthStart = firstDay.toEpochDay();
+            while (cursor.hasNext()) {
+                long day = cursor.nextEpochDay();
+                int bit = 1 << (int) (day - monthStart);
+                if (cancellations.contains(day)) {
+                    cancelledDays |= bit;
+                } else {
+                    days |= bit;
+                }
+            }
+            ScheduleSeriesMonthDTO dto = ScheduleSeriesMonthDTO.fromWorktimeSeries(series);
+            dto.setDays(days);
+            dto.setCancelledDays(cancelledDays);
+            seriesDTOs.add(dto);
+        }
+        return seriesDTOs;
+    }
+
+    /**
+     * Jours du mois de chaque série, lus dans la table des occurrences matérialisées
+     */
+    private List<ScheduleSeriesMonthDTO> materializedSeriesMonth(List<WorktimeSeries> activeSeries, LocalDate firstDay,
+                                                                 LocalDate lastDay, Integer userId) {
+        // [jours, jours annulés] par série
+        Map<Long, int[]> bitmaps = new HashMap<>();
+        long monthStart = firstDay.toEpochDay();
+        for (Object[] row : workTimeSeriesRepository.findOccurrencesByUserAndPeriod(userId, firstDay, lastDay)) {
+            int[] bitmap = bitmaps.computeIfAbsent(((Number) row[0]).longValue(), id -> new int[2]);
+            int bit = 1 << (int) (((java.sql.Date) row[1]).toLocalDate().toEpochDay() - monthStart);
+            bitmap[Boolean.TRUE.equals(row[2]) ? 1 : 0] |= bit;
+        }
+
+        List<ScheduleSeriesMonthDTO> seriesDTOs = new ArrayList<>();
+        for (WorktimeSeries series : activeSeries) {
+            int[] bitmap = bitmaps.get(series.getId());
+            if (bitmap == null) {
+                continue;
+            }
+            ScheduleSeriesMonthDTO dto = ScheduleSeriesMonthDTO.fromWorktimeSeries(series);
+            dto.setDays(bitmap[0]);
+            dto.setCancelledDays(bitmap[1]);
+            seriesDTOs.add(dto);
+        }
+        return seriesDTOs;
+    }
+
+    @Transactional(readOnly = true)
+    public ScheduleThreeDaysDTO getUserScheduleForThreeDays(LocalDate date, Integer userId) {
+        LoggerUtils.info(logger, "Getting schedule for three days around: " + date + " for user id: " + userId);
+
+        Map<LocalDate, List<ScheduleEntryDTO>> window = getUserScheduleForWindow(date.minusDays(1), date.plusDays(1), userId);
+        return ScheduleThreeDaysDTO.builder()
+                .yesterday(window.get(date.minusDays(1)))
+                .today(window.get(date))
+                .tomorrow(window.get(date.plusDays(1)))
+                .build();
     }
 }
\ No newline at end of file
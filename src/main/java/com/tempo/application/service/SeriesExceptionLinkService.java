@@ -0,0 +1,57 @@
+package com.tempo.application.service;
+
+import com.tempo.application.model.worktimeSeries.WorktimeSeries;
+import com.tempo.application.repository.RecurrenceExceptionRepository;
+import com.tempo.application.repository.WorkTimeSeriesRepository;
+import com.tempo.application.utils.LoggerUtils;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Maintient les liens entre séries et pauses (table recurrence_exception_series) par différence :
+ * une requête retire les liens obsolètes, une autre ajoute les liens manquants, sans réécrire
+ * les collections @ManyToMany. Seules les pauses du propriétaire de la série sont liées.
+ *
+ * Les deux requêtes lisent la période de la série en base : la série doit être enregistrée avant.
+ * Le contexte de persistance est vidé ensuite ; les séries sont renvoyées rechargées avec leurs exceptions.
+ */
+@Service
+public class SeriesExceptionLinkService {
+
+    private static final Logger logger = LoggerUtils.getLogger(SeriesExceptionLinkService.class);
+
+    @Autowired
+    private RecurrenceExceptionRepository recurrenceExceptionRepository;
+
+    @Autowired
+    private WorkTimeSeriesRepository workTimeSeriesRepository;
+
+    /**
+     * Met à jour les liens de la série selon sa période et ignoreExceptions
+     * @return la série rechargée avec ses exceptions
+     */
+    @Transactional
+    public WorktimeSeries syncLinks(WorktimeSeries series) {
+        return syncLinks(List.of(series.getId())).get(0);
+    }
+
+    /**
+     * Met à jour les liens des séries selon leur période et ignoreExceptions
+     * @return les séries rechargées avec leurs exceptions
+     */
+    @Transactional
+    public List<WorktimeSeries> syncLinks(Collection<Long> seriesIds) {
+        if (seriesIds.isEmpty()) {
+            return List.of();
+        }
+        int removed = recurrenceExceptionRepository.unlinkStaleExceptions(seriesIds);
+        int added = recurrenceExceptionRepository.linkOverlappingExceptions(seriesIds);
+        logger.debug("Exception links of {} series: {} removed, {} added", seriesIds.size(), removed, added);
+        return workTimeSeriesRepository.findAllWithExceptionsByIdIn(List.copyOf(seriesIds));
+    }
+}
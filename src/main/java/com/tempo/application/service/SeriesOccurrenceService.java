@@ -0,0 +1,262 @@
+package com.tempo.application.service;
+
+import com.tempo.application.model.worktimeSeries.WorktimeSeries;
+import com.tempo.application.repository.WorkTimeSeriesRepository;
+import com.tempo.application.utils.CompiledRecurrence;
+import com.tempo.application.utils.ExceptionIntervals;
+import com.tempo.application.utils.LoggerUtils;
+import com.tempo.application.utils.OccurrenceCursor;
+import com.tempo.application.utils.RecurrenceUtils;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintient la table series_occurrence : une ligne par occurrence de série, de la date
+ * de début de la série jusqu'à un horizon glissant (aujourd'hui + horizon-days).
+ *
+ * Une création ou modification de série recalcule toutes ses occurrences ; une exception
+ * ne recalcule que les jours qu'elle couvre. Une tâche planifiée matérialise les séries
+ * existantes et prolonge l'horizon. Le planning et les statistiques peuvent ensuite lire
+ * les occurrences par simple parcours d'index (user_id, day).
+ *
+ * La tâche planifiée traite les séries par lots, une transaction par lot, et ne tourne que
+ * sur une instance à la fois (verrou consultatif PostgreSQL).
+ */
+@Service
+public class SeriesOccurrenceService {
+
+    private static final Logger logger = LoggerUtils.getLogger(SeriesOccurrenceService.class);
+
+    // Nombre maximal de jours envoyés par requête d'insertion
+    private static final int BATCH_SIZE = 1000;
+
+    // Verrou de session : libéré explicitement, ou par PostgreSQL si l'instance perd sa connexion
+    private static final String LOCK_KEY = "series_occurrence.extend_horizon";
+
+    @Autowired
+    private WorkTimeSeriesRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.series.occurrences.horizon-days:400}")
+    private int horizonDays;
+
+    // Séries traitées par transaction dans la tâche planifiée
+    @Value("${app.series.occurrences.chunk-size:200}")
+    private int chunkSize;
+
+    /**
+     * Dernier jour matérialisé pour une série sans date de fin
+     */
+    public LocalDate horizon() {
+        return LocalDate.now().plusDays(horizonDays);
+    }
+
+    /**
+     * Recalcule toutes les occurrences de la série jusqu'à l'horizon
+     * (création, modification des dates, des horaires ou de la règle)
+     */
+    @Transactional
+    public void rematerialize(WorktimeSeries series) {
+        if (series.getId() == null) {
+            return;
+        }
+        LocalDate horizon = horizon();
+        repository.deleteOccurrences(series.getId());
+        if (series.getStartDate() != null) {
+            materialize(series, series.getStartDate().toLocalDate(), horizon);
+        }
+        repository.setOccurrencesMaterializedUntil(series.getId(), horizon);
+    }
+
+    /**
+     * Recalcule l'état annulé des occurrences des séries sur la période d'une exception
+     * @param seriesList les séries liées à l'exception, exceptions à jour
+     * @param start début de la période (inclus)
+     * @param end fin de la période (incluse)
+     */
+    @Transactional
+    public void refreshCancellations(Collection<WorktimeSeries> seriesList, LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null) {
+            return;
+        }
+        LocalDate horizon = horizon();
+        LocalDate last = end.toLocalDate().isBefore(horizon) ? end.toLocalDate() : horizon;
+        Set<Long> done = new HashSet<>();
+        for (WorktimeSeries series : seriesList) {
+            if (series.getId() != null && done.add(series.getId())) {
+                // Mêmes jours qu'avant : l'upsert ne modifie que la colonne cancelled
+                materialize(series, start.toLocalDate(), last);
+            }
+        }
+    }
+
+    /**
+     * Matérialise les séries jamais traitées et prolonge les autres jusqu'au nouvel horizon.
+     * Sans effet si une autre instance détient déjà le verrou.
+     */
+    @Scheduled(initialDelayString = "${app.series.occurrences.initial-delay-ms:60000}",
+            fixedDelayString = "${app.series.occurrences.refresh-interval-ms:3600000}")
+    public void extendHorizon() {
+        // Le verrou est pris sur une connexion dédiée, tenue pendant tout le traitement ;
+        // les lots utilisent leurs propres connexions transactionnelles
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            if (!advisoryLock(connection, "pg_try_advisory_lock")) {
+                logger.debug("Occurrence materialization already running on another instance");
+                return null;
+            }
+            try {
+                extendHorizonByChunks(horizon());
+            } finally {
+                advisoryLock(connection, "pg_advisory_unlock");
+            }
+            return null;
+        });
+    }
+
+    private static boolean advisoryLock(java.sql.Connection connection, String function) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(hashtext(?))")) {
+            statement.setString(1, LOCK_KEY);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Parcourt les séries à matérialiser par pages d'identifiants, une transaction par page
+     */
+    private void extendHorizonByChunks(LocalDate horizon) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long afterId = 0;
+        int total = 0;
+        while (true) {
+            long lastId = afterId;
+            List<Object[]> rows = transactionTemplate.execute(status -> materializeChunk(horizon, lastId));
+            if (rows == null || rows.isEmpty()) {
+                break;
+            }
+            total += rows.size();
+            afterId = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+            if (rows.size() < chunkSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            LoggerUtils.info(logger, "Materialized occurrences of " + total + " series up to " + horizon);
+        }
+    }
+
+    /**
+     * Matérialise une page de séries d'identifiant supérieur à afterId,
+     * chargées en une requête avec leurs exceptions
+     * @return les lignes [id, dernier jour matérialisé] de la page
+     */
+    private List<Object[]> materializeChunk(LocalDate horizon, long afterId) {
+        List<Object[]> rows = repository.findSeriesToMaterialize(horizon, afterId, chunkSize);
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        List<Long> ids = rows.stream().map(row -> ((Number) row[0]).longValue()).collect(Collectors.toList());
+        Map<Long, WorktimeSeries> seriesById = repository.findAllWithExceptionsByIdIn(ids).stream()
+                .collect(Collectors.toMap(WorktimeSeries::getId, Function.identity()));
+
+        for (Object[] row : rows) {
+            Long seriesId = ((Number) row[0]).longValue();
+            LocalDate materializedUntil = row[1] != null ? ((java.sql.Date) row[1]).toLocalDate() : null;
+            WorktimeSeries series = seriesById.get(seriesId);
+            if (series == null || series.getStartDate() == null) {
+                continue;
+            }
+            LocalDate from;
+            if (materializedUntil == null) {
+                repository.deleteOccurrences(seriesId);
+                from = series.getStartDate().toLocalDate();
+            } else {
+                from = materializedUntil.plusDays(1);
+            }
+            materialize(series, from, horizon);
+            repository.setOccurrencesMaterializedUntil(seriesId, horizon);
+        }
+        return rows;
+    }
+
+    /**
+     * Insère (ou met à jour) les occurrences de la série comprises dans [from, to]
+     */
+    private void materialize(WorktimeSeries series, LocalDate from, LocalDate to) {
+        if (series.getRecurrence() == null || series.getStartDate() == null
+                || series.getStartHour() == null || series.getEndHour() == null) {
+            return;
+        }
+        LocalDate last = series.getEndDate() != null && series.getEndDate().toLocalDate().isBefore(to)
+                ? series.getEndDate().toLocalDate()
+                : to;
+        OccurrenceCursor cursor = RecurrenceUtils.occurrences(
+                CompiledRecurrence.of(series.getRecurrence()),
+                series.getStartDate().toLocalDate().toEpochDay(),
+                from.toEpochDay(),
+                last.toEpochDay());
+        if (!cursor.hasNext()) {
+            return;
+        }
+        ExceptionIntervals cancellations = ExceptionIntervals.excludedDaysOf(series);
+        String startTime = series.getStartHour().toLocalTime().toString();
+        int minutes = series.getDuration().intValue();
+
+        StringBuilder days = new StringBuilder();
+        StringBuilder cancelledDays = new StringBuilder();
+        int count = 0;
+        while (cursor.hasNext()) {
+            long day = cursor.nextEpochDay();
+            String date = LocalDate.ofEpochDay(day).toString();
+            append(days, date);
+            if (cancellations.contains(day)) {
+                append(cancelledDays, date);
+            }
+            if (++count == BATCH_SIZE) {
+                repository.insertOccurrences(series.getId(), series.getUser().getId(), startTime, minutes,
+                        days.toString(), cancelledDays.toString());
+                days.setLength(0);
+                cancelledDays.setLength(0);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            repository.insertOccurrences(series.getId(), series.getUser().getId(), startTime, minutes,
+                    days.toString(), cancelledDays.toString());
+        }
+    }
+
+    private static void append(StringBuilder builder, String date) {
+        if (builder.length() > 0) {
+            builder.append(',');
+        }
+        builder.append(date);
+    }
+}
@@ -0,0 +1,83 @@
+package com.tempo.application.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.tempo.application.utils.LoggerUtils;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Invalidation par utilisateur des caches de statistiques.
+ *
+ * Les clés des caches commencent toutes par "userId:generation:" (voir les @Cacheable de StatsService) :
+ * une écriture n'évince que les entrées de son utilisateur. Comme pour ScheduleCache,
+ * l'éviction est rejouée après le commit si une transaction est en cours, et chaque éviction
+ * incrémente la génération de l'utilisateur : un calcul commencé avant le commit range son
+ * résultat sous l'ancienne génération, que plus aucune lecture ne consulte.
+ */
+@Component
+public class StatsCache {
+
+    private static final Logger logger = LoggerUtils.getLogger(StatsCache.class);
+
+    public static final String CATEGORY_STATS = "categoryStats";
+    public static final String TOTAL_WORKTIME = "totalWorktime";
+    public static final String COMBINED_STATS = "combinedStats";
+
+    private static final String[] CACHE_NAMES = { CATEGORY_STATS, TOTAL_WORKTIME, COMBINED_STATS };
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final Map<Integer, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Génération courante des statistiques de l'utilisateur, à inclure dans les clés de cache
+     */
+    public long generation(Integer userId) {
+        AtomicLong generation = generations.get(userId);
+        return generation != null ? generation.get() : 0L;
+    }
+
+    /**
+     * Évince toutes les statistiques en cache de l'utilisateur
+     */
+    public void evictUser(Integer userId) {
+        if (userId == null) {
+            return;
+        }
+        Runnable eviction = () -> evict(userId);
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    private void evict(Integer userId) {
+        generations.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+        String prefix = userId + ":";
+        for (String name : CACHE_NAMES) {
+            org.springframework.cache.Cache cache = cacheManager.getCache(name);
+            if (cache instanceof CaffeineCache caffeineCache) {
+                Cache<Object, Object> nativeCache = caffeineCache.getNativeCache();
+                nativeCache.asMap().keySet().removeIf(key -> key.toString().startsWith(prefix));
+            } else if (cache != null) {
+                cache.clear();
+            }
+        }
+        logger.debug("Evicted stats cache entries for user {}", userId);
+    }
+}
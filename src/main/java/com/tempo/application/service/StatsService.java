@@ -4,54 +4,120 @@ import com.tempo.application.model.worktime.DTO.CategoryStatDTO;
 import com.tempo.application.model.worktimeSeries.WorktimeSeries;
 import com.tempo.application.repository.WorktimeRepository;
 import com.tempo.application.repository.WorkTimeSeriesRepository;
+import com.tempo.application.utils.CompiledRecurrence;
+import com.tempo.application.utils.ExceptionIntervals;
+import com.tempo.application.utils.LoggerUtils;
+import com.tempo.application.utils.OccurrenceCursor;
 import com.tempo.application.utils.RecurrenceUtils;
+import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
-import com.tempo.application.model.recurrenceException.RecurrenceException;
 
 @Service
 public class StatsService {
+
+    private static final Logger logger = LoggerUtils.getLogger(StatsService.class);
+
     @Autowired
     private WorktimeRepository worktimeRepository;
     @Autowired
     private WorkTimeSeriesRepository workTimeSeriesRepository;
 
-    private LocalDateTime calculateRecurrenceEnd(WorktimeSeries series, LocalDateTime requestedEndDate) {
-        return (series.getEndDate() != null && series.getEndDate().isBefore(requestedEndDate)) 
-            ? series.getEndDate() 
-            : requestedEndDate;
+    // Moteur de calcul des totaux : "java" (développement des séries en Java), "sql" (generate_series)
+    // ou "materialized" (table series_occurrence)
+    @Value("${app.stats.engine:java}")
+    private String statsEngine;
+
+    /**
+     * Dernier jour d'occurrence de la série à compter : lastOccurrenceDay, borné par le jour de fin de la série.
+     * Mêmes bornes que la table series_occurrence, pour que les moteurs donnent les mêmes totaux
+     */
+    private long lastSeriesDay(WorktimeSeries series, LocalDateTime from, LocalDateTime to) {
+        java.time.LocalDate last = lastOccurrenceDay(from, to);
+        if (series.getEndDate() != null && series.getEndDate().toLocalDate().isBefore(last)) {
+            last = series.getEndDate().toLocalDate();
+        }
+        return last.toEpochDay();
+    }
+
+    /**
+     * Occurrences de la série entre le jour de 'from' et lastSeriesDay
+     */
+    private OccurrenceCursor seriesOccurrences(WorktimeSeries series, LocalDateTime from, LocalDateTime to) {
+        return RecurrenceUtils.occurrences(
+            CompiledRecurrence.of(series.getRecurrence()),
+            series.getStartDate().toLocalDate().toEpochDay(),
+            from.toLocalDate().toEpochDay(),
+            lastSeriesDay(series, from, to));
+    }
+
+    /**
+     * Dernier jour d'occurrence des séries à inclure pour la borne 'to' (mêmes bornes que series_occurrence) :
+     * une borne à minuit exclut le jour qui commence
+     */
+    private java.time.LocalDate lastOccurrenceDay(LocalDateTime from, LocalDateTime to) {
+        if (to.toLocalTime().equals(java.time.LocalTime.MIDNIGHT) && to.isAfter(from)) {
+            return to.toLocalDate().minusDays(1);
+        }
+        return to.toLocalDate();
+    }
+
+    /**
+     * Premier jour entièrement compris dans [from, to[ : jours lus dans l'agrégat journalier
+     */
+    private java.time.LocalDate firstFullDay(LocalDateTime from) {
+        return from.toLocalTime().equals(java.time.LocalTime.MIDNIGHT) ? from.toLocalDate() : from.toLocalDate().plusDays(1);
     }
 
     /**
-     * Vérifie si une occurrence tombe dans la période d'une exception.
-     * Une occurrence est considérée comme "dans l'exception" si elle tombe
-     * le même jour que la période d'exception (même si elle est après la fin de la pause).
-     * 
-     * @param occurrence La date/heure de l'occurrence à vérifier
-     * @param exception L'exception à vérifier
-     * @return true si l'occurrence est dans la période d'exception, false sinon
+     * Dernier jour entièrement compris dans [from, to[ (avant firstFullDay si aucun)
      */
-    private boolean isInExceptionPeriod(LocalDateTime occurrence, RecurrenceException exception) {
-        // Vérifier si l'occurrence tombe le même jour que la période d'exception
-        return !occurrence.toLocalDate().isBefore(exception.getPauseStart().toLocalDate()) &&
-               !occurrence.toLocalDate().isAfter(exception.getPauseEnd().toLocalDate());
+    private java.time.LocalDate lastFullDay(LocalDateTime to) {
+        return to.toLocalDate().minusDays(1);
     }
 
-    // @Cacheable(value = "categoryStats", key = "#userId + ':' + #from + ':' + #to") // Temporairement désactivé pour debug
+    /**
+     * Worktimes chevauchant [from, to[ hors des jours entiers de l'agrégat, lus dans la table worktime :
+     * jour de 'from' avant minuit, jour de 'to', et worktimes commencés avant 'from' qui s'y prolongent.
+     * Comme l'agrégat : durée complète rattachée au jour de début.
+     * [jour, nom de catégorie (null si sans catégorie), minutes, nombre de worktimes]
+     */
+    private List<Object[]> edgeWorktimes(Integer userId, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime interiorStart = firstFullDay(from).atStartOfDay();
+        LocalDateTime interiorEnd = lastFullDay(to).plusDays(1).atStartOfDay();
+        if (interiorEnd.isBefore(interiorStart)) {
+            // Aucun jour entier : tout est lu dans la table worktime, sans recouvrement des deux parties
+            interiorEnd = interiorStart;
+        }
+        return worktimeRepository.getEdgeWorktimesGroupByDayAndCategory(userId, from, to, interiorStart, interiorEnd);
+    }
+
+    /**
+     * true si le moteur "materialized" est actif et que toutes les séries de la période sont
+     * matérialisées jusqu'au dernier jour demandé ; sinon les séries sont développées en Java
+     */
+    private boolean useMaterializedOccurrences(Integer userId, LocalDateTime from, LocalDateTime to) {
+        return "materialized".equalsIgnoreCase(statsEngine)
+            && workTimeSeriesRepository.countSeriesNotMaterializedUntil(userId, from, to, lastOccurrenceDay(from, to)) == 0;
+    }
+
+    // Clés préfixées par l'utilisateur : voir StatsCache.evictUser
+    @Cacheable(value = StatsCache.CATEGORY_STATS, key = "#userId + ':' + @statsCache.generation(#userId) + ':' + #from + ':' + #to")
+    @Transactional(readOnly = true)
     public List<CategoryStatDTO> getCategoryStats(Integer userId, LocalDateTime from, LocalDateTime to) {
-        System.out.println("DEBUG: getCategoryStats called with userId=" + userId + ", from=" + from + ", to=" + to);
+        logger.debug("getCategoryStats called with userId={}, from={}, to={}", userId, from, to);
         
         // 1. Récupérer tous les worktimes ponctuels (pas besoin de filtrer)
-        List<Object[]> ponctuelsRaw = worktimeRepository.getCategoryStatsByUserAndPeriod(userId, from, to);
-        System.out.println("DEBUG: Found " + ponctuelsRaw.size() + " worktime entries from SQL query");
-        for (Object[] row : ponctuelsRaw) {
-            System.out.println("DEBUG: Category=" + row[0] + ", Duration=" + row[1]);
-        }
+        // Jours entiers lus dans l'agrégat journalier : au plus une ligne par jour et par catégorie
+        List<Object[]> ponctuelsRaw = worktimeRepository.getCategoryStatsFromRollup(userId, firstFullDay(from), lastFullDay(to));
+        logger.debug("Found {} category rows in the daily rollup", ponctuelsRaw.size());
         
         Map<String, Integer> totalDurations = new HashMap<>();
         for (Object[] row : ponctuelsRaw) {
@@ -59,48 +125,39 @@ public class StatsService {
             Integer duration = (Integer) row[1];
             totalDurations.merge(categoryName, duration, Integer::sum);
         }
+        // Jours de bord lus dans la table worktime ; pas de répartition pour les worktimes sans catégorie
+        for (Object[] row : edgeWorktimes(userId, from, to)) {
+            if (row[1] != null) {
+                totalDurations.merge((String) row[1], ((Number) row[2]).intValue(), Integer::sum);
+            }
+        }
 
         // 2. Récupérer les séries récurrentes
-        List<WorktimeSeries> seriesList = workTimeSeriesRepository.findByUserAndPeriod(userId, from, to);
+        List<WorktimeSeries> seriesList;
+        if (useMaterializedOccurrences(userId, from, to)) {
+            // Occurrences non annulées déjà matérialisées, sommées par catégorie
+            for (Object[] row : workTimeSeriesRepository.getCategoryStatsFromOccurrences(userId, from.toLocalDate(), lastOccurrenceDay(from, to))) {
+                totalDurations.merge((String) row[0], (Integer) row[1], Integer::sum);
+            }
+            seriesList = Collections.emptyList();
+        } else {
+            seriesList = workTimeSeriesRepository.findByUserAndPeriod(userId, from, to);
+        }
         for (WorktimeSeries series : seriesList) {
-            LocalDateTime recurrenceEnd = calculateRecurrenceEnd(series, to);
-
             String catName = series.getCategory() != null ? series.getCategory().getName() : "<no-cat>";
-            Boolean ignoreExceptions = series.getIgnoreExceptions();
-
-            // Si ignoreExceptions est true, on traite la série normalement
-            // Si ignoreExceptions est null, on considère qu'il est false
-            if (Boolean.TRUE.equals(ignoreExceptions)) {
-                List<LocalDateTime> occurrences = RecurrenceUtils.generateOccurrences(
-                    series.getRecurrence(),
-                    series.getStartDate(),
-                    from,
-                    recurrenceEnd,
-                    series.getStartHour() != null ? series.getStartHour() : series.getStartDate()
-                );
-                int totalMinutes = occurrences.size() * series.getDuration().intValue();
-                totalDurations.merge(catName, totalMinutes, Integer::sum);
-                continue;
-            }
 
-            // Sinon (ignoreExceptions est false ou null), on filtre les occurrences selon les exceptions
-            List<LocalDateTime> occurrences = RecurrenceUtils.generateOccurrences(
-                series.getRecurrence(),
-                series.getStartDate(),
-                from,
-                recurrenceEnd,
-                series.getStartHour() != null ? series.getStartHour() : series.getStartDate()
+            // Jours annulés : mêmes règles que la colonne cancelled de series_occurrence
+            ExceptionIntervals excludedDays = ExceptionIntervals.excludedDaysOf(series);
+
+            // Comptage arithmétique : pas de matérialisation des occurrences
+            long occurrenceCount = RecurrenceUtils.countOccurrences(
+                CompiledRecurrence.of(series.getRecurrence()),
+                series.getStartDate().toLocalDate().toEpochDay(),
+                from.toLocalDate().toEpochDay(),
+                lastSeriesDay(series, from, to),
+                excludedDays
             );
-            
-            if (series.getExceptions() != null && !series.getExceptions().isEmpty()) {
-                occurrences = occurrences.stream()
-                    .filter(occ -> series.getExceptions().stream()
-                        .noneMatch(ex -> isInExceptionPeriod(occ, ex))
-                    )
-                    .collect(Collectors.toList());
-            }
-            
-            int totalMinutes = occurrences.size() * series.getDuration().intValue();
+            int totalMinutes = (int) (occurrenceCount * series.getDuration().intValue());
             totalDurations.merge(catName, totalMinutes, Integer::sum);
         }
 
@@ -115,87 +172,216 @@ public class StatsService {
      * Retourne le temps total (toutes catégories confondues) par jour (si période <= 31 jours) ou par mois (sinon).
      * Format de retour : { labels: [...], data: [...] }
      */
+    @Cacheable(value = StatsCache.TOTAL_WORKTIME, key = "#userId + ':' + @statsCache.generation(#userId) + ':' + #from + ':' + #to + ':' + #type.toLowerCase()")
+    @Transactional(readOnly = true)
     public Map<String, Object> getTotalWorkTime(Integer userId, LocalDateTime from, LocalDateTime to, String type) {
-        Map<String, Integer> totalByPeriod = new java.util.TreeMap<>();
-        List<Object[]> rows;
-        if ("month".equalsIgnoreCase(type)) {
-            rows = worktimeRepository.getTotalWorktimeByUserAndPeriodGroupByWeek(userId, from, to);
-        } else if ("year".equalsIgnoreCase(type)) {
-            rows = worktimeRepository.getTotalWorktimeByUserAndPeriodGroupByMonth(userId, from, to);
-        } else if ("week".equalsIgnoreCase(type)) {
-            rows = worktimeRepository.getTotalWorktimeByUserAndPeriodGroupByDay(userId, from, to);
-        } else {
+        if (!"week".equalsIgnoreCase(type) && !"month".equalsIgnoreCase(type) && !"year".equalsIgnoreCase(type)) {
             throw new IllegalArgumentException("Type de groupement non supporté : " + type);
         }
-        for (Object[] row : rows) {
-            String period;
+        Map<String, Integer> totalByPeriod = new java.util.TreeMap<>();
+        java.time.LocalDate firstDay = from.toLocalDate();
+        java.time.LocalDate lastDay = lastOccurrenceDay(from, to);
+        List<WorktimeSeries> seriesList;
+
+        if ("sql".equalsIgnoreCase(statsEngine)) {
+            // Moteur SQL : worktimes ponctuels + séries hebdomadaires simples développées par PostgreSQL,
+            // totaux déjà regroupés par période ; seules les autres règles sont développées en Java
+            List<Object[]> rows = worktimeRepository.getTotalWorktimeWithWeeklySeriesByPeriod(
+                userId, from, to, firstDay, lastDay, firstFullDay(from), lastFullDay(to), type.toLowerCase());
+            for (Object[] row : rows) {
+                totalByPeriod.put(row[0].toString(), ((Number) row[1]).intValue());
+            }
+            // Identifiants en SQL natif (expression régulière), puis chargement avec les exceptions :
+            // deux requêtes quel que soit le nombre de séries
+            List<Long> seriesIds = workTimeSeriesRepository.findIdsByUserAndPeriodNotSqlExpandable(userId, from, to);
+            seriesList = seriesIds.isEmpty()
+                ? Collections.emptyList()
+                : workTimeSeriesRepository.findAllWithExceptionsByIdIn(seriesIds);
+        } else {
+            // Jours entiers lus dans l'agrégat journalier
+            java.time.LocalDate firstFullDay = firstFullDay(from);
+            java.time.LocalDate lastFullDay = lastFullDay(to);
+            List<Object[]> rows;
             if ("month".equalsIgnoreCase(type)) {
-                period = row[0] + "-S" + String.format("%02d", ((Number) row[1]).intValue());
-                int duration = ((Number) row[2]).intValue();
-                totalByPeriod.put(period, duration);
+                rows = worktimeRepository.getTotalWorktimeFromRollupGroupByWeek(userId, firstFullDay, lastFullDay);
             } else if ("year".equalsIgnoreCase(type)) {
-                period = row[0].toString();
-                int duration = ((Number) row[1]).intValue();
-                totalByPeriod.put(period, duration);
+                rows = worktimeRepository.getTotalWorktimeFromRollupGroupByMonth(userId, firstFullDay, lastFullDay);
             } else {
-                period = ((java.sql.Date) row[0]).toLocalDate().toString();
-                int duration = ((Number) row[1]).intValue();
-                totalByPeriod.put(period, duration);
-                 
+                rows = worktimeRepository.getTotalWorktimeFromRollupGroupByDay(userId, firstFullDay, lastFullDay);
             }
+            for (Object[] row : rows) {
+                String period;
+                if ("month".equalsIgnoreCase(type)) {
+                    period = row[0] + "-S" + String.format("%02d", ((Number) row[1]).intValue());
+                    int duration = ((Number) row[2]).intValue();
+                    totalByPeriod.put(period, duration);
+                } else if ("year".equalsIgnoreCase(type)) {
+                    period = row[0].toString();
+                    int duration = ((Number) row[1]).intValue();
+                    totalByPeriod.put(period, duration);
+                } else {
+                    period = ((java.sql.Date) row[0]).toLocalDate().toString();
+                    int duration = ((Number) row[1]).intValue();
+                    totalByPeriod.put(period, duration);
+                }
+            }
+            if (useMaterializedOccurrences(userId, from, to)) {
+                // Occurrences non annulées déjà matérialisées, par jour
+                for (Object[] row : workTimeSeriesRepository.getTotalMinutesFromOccurrencesGroupByDay(userId, firstDay, lastDay)) {
+                    String period = formatPeriod(((java.sql.Date) row[0]).toLocalDate(), type);
+                    totalByPeriod.merge(period, ((Number) row[1]).intValue(), Integer::sum);
+                }
+                seriesList = Collections.emptyList();
+            } else {
+                seriesList = workTimeSeriesRepository.findByUserAndPeriod(userId, from, to);
+            }
+        }
+
+        // Worktimes des jours de bord, lus dans la table worktime (tous moteurs)
+        for (Object[] row : edgeWorktimes(userId, from, to)) {
+            String period = formatPeriod(((java.sql.Date) row[0]).toLocalDate(), type);
+            totalByPeriod.merge(period, ((Number) row[2]).intValue(), Integer::sum);
         }
 
-        // Séries récurrentes
-        List<WorktimeSeries> seriesList = workTimeSeriesRepository.findByUserAndPeriod(userId, from, to);
+        // Séries récurrentes développées en Java
         for (WorktimeSeries series : seriesList) {
-            LocalDateTime recurrenceEnd = calculateRecurrenceEnd(series, to);
-
-            // Si ignoreExceptions est true, on traite la série normalement
-            // Si ignoreExceptions est null, on considère qu'il est false
-            Boolean ignoreExceptions = series.getIgnoreExceptions();
-            if (Boolean.TRUE.equals(ignoreExceptions)) {
-                List<LocalDateTime> occurrences = RecurrenceUtils.generateOccurrences(
-                    series.getRecurrence(),
-                    series.getStartDate(),
-                    from,
-                    recurrenceEnd,
-                    series.getStartHour() != null ? series.getStartHour() : series.getStartDate()
-                );
-                for (LocalDateTime occ : occurrences) {
-                    String period = formatPeriod(occ, type);
-                    int duration = series.getDuration().intValue();
-                    totalByPeriod.merge(period, duration, Integer::sum);
+            // Index des jours annulés construit une seule fois pour la série : O(log n) par occurrence
+            ExceptionIntervals excludedDays = ExceptionIntervals.excludedDaysOf(series);
+            int duration = series.getDuration().intValue();
+
+            // Parcours paresseux : pas de liste intermédiaire d'occurrences
+            OccurrenceCursor cursor = seriesOccurrences(series, from, to);
+            while (cursor.hasNext()) {
+                long day = cursor.nextEpochDay();
+                if (excludedDays.contains(day)) {
+                    continue;
                 }
-                continue;
+                String period = formatPeriod(java.time.LocalDate.ofEpochDay(day), type);
+                totalByPeriod.merge(period, duration, Integer::sum);
             }
+        }
 
-            // Sinon (ignoreExceptions est false ou null), on filtre les occurrences selon les exceptions
-            List<LocalDateTime> occurrences = RecurrenceUtils.generateOccurrences(
-                series.getRecurrence(),
-                series.getStartDate(),
-                from,
-                recurrenceEnd,
-                series.getStartHour() != null ? series.getStartHour() : series.getStartDate()
-            );
+        PeriodAxis axis = periodAxis(from, to, type);
+        List<Integer> data = new java.util.ArrayList<>();
+        for (String period : axis.periods()) {
+            data.add(totalByPeriod.getOrDefault(period, 0));
+        }
 
-            if (series.getExceptions() != null && !series.getExceptions().isEmpty()) {
-                occurrences = occurrences.stream()
-                    .filter(occ -> series.getExceptions().stream()
-                        .noneMatch(ex -> isInExceptionPeriod(occ, ex))
-                    )
-                    .collect(Collectors.toList());
+        Map<String, Object> result = new java.util.HashMap<>();
+        result.put("labels", axis.labels());
+        result.put("data", data);
+        return result;
+    }
+
+    /**
+     * Statistiques complètes du tableau de bord en un seul passage : répartition par catégorie,
+     * total par période et total par catégorie et par période.
+     * L'agrégat journalier et les séries ne sont lus qu'une fois, chaque occurrence alimentant
+     * les trois résultats (au lieu d'appeler getCategoryStats puis getTotalWorkTime).
+     * Le moteur "sql" n'est pas utilisé ici (il ne distingue pas les catégories).
+     * Format de retour : { categories: [...], total: { labels, data }, byCategory: { nom: [...] } }
+     */
+    @Cacheable(value = StatsCache.COMBINED_STATS, key = "#userId + ':' + @statsCache.generation(#userId) + ':' + #from + ':' + #to + ':' + #type.toLowerCase()")
+    @Transactional(readOnly = true)
+    public Map<String, Object> getCombinedStats(Integer userId, LocalDateTime from, LocalDateTime to, String type) {
+        if (!"week".equalsIgnoreCase(type) && !"month".equalsIgnoreCase(type) && !"year".equalsIgnoreCase(type)) {
+            throw new IllegalArgumentException("Type de groupement non supporté : " + type);
+        }
+        java.time.LocalDate firstDay = from.toLocalDate();
+        java.time.LocalDate lastDay = lastOccurrenceDay(from, to);
+        Map<String, Integer> totalDurations = new HashMap<>();
+        Map<String, Integer> totalByPeriod = new HashMap<>();
+        Map<String, Map<String, Integer>> totalByCategoryAndPeriod = new HashMap<>();
+
+        // 1. Worktimes ponctuels : agrégat journalier par jour et par catégorie pour les jours entiers,
+        // table worktime pour les jours de bord
+        List<Object[]> worktimeRows = new java.util.ArrayList<>(
+            worktimeRepository.getRollupGroupByDayAndCategory(userId, firstFullDay(from), lastFullDay(to)));
+        worktimeRows.addAll(edgeWorktimes(userId, from, to));
+        for (Object[] row : worktimeRows) {
+            String period = formatPeriod(((java.sql.Date) row[0]).toLocalDate(), type);
+            String categoryName = (String) row[1];
+            int duration = ((Number) row[2]).intValue();
+            totalByPeriod.merge(period, duration, Integer::sum);
+            // Comme getCategoryStats : pas de répartition pour les worktimes sans catégorie
+            if (categoryName != null && ((Number) row[3]).longValue() > 0) {
+                totalDurations.merge(categoryName, duration, Integer::sum);
+                totalByCategoryAndPeriod.computeIfAbsent(categoryName, k -> new HashMap<>())
+                    .merge(period, duration, Integer::sum);
             }
+        }
 
-            for (LocalDateTime occ : occurrences) {
-                String period = formatPeriod(occ, type);
-                int duration = series.getDuration().intValue();
+        // 2. Séries récurrentes : occurrences matérialisées ou développées une seule fois
+        if (useMaterializedOccurrences(userId, from, to)) {
+            for (Object[] row : workTimeSeriesRepository.getMinutesFromOccurrencesGroupByDayAndCategory(userId, firstDay, lastDay)) {
+                String period = formatPeriod(((java.sql.Date) row[0]).toLocalDate(), type);
+                String categoryName = row[1] != null ? (String) row[1] : "<no-cat>";
+                int duration = ((Number) row[2]).intValue();
                 totalByPeriod.merge(period, duration, Integer::sum);
+                totalDurations.merge(categoryName, duration, Integer::sum);
+                totalByCategoryAndPeriod.computeIfAbsent(categoryName, k -> new HashMap<>())
+                    .merge(period, duration, Integer::sum);
+            }
+        } else {
+            for (WorktimeSeries series : workTimeSeriesRepository.findByUserAndPeriod(userId, from, to)) {
+                String categoryName = series.getCategory() != null ? series.getCategory().getName() : "<no-cat>";
+                ExceptionIntervals excludedDays = ExceptionIntervals.excludedDaysOf(series);
+                int duration = series.getDuration().intValue();
+                Map<String, Integer> categoryByPeriod = totalByCategoryAndPeriod.computeIfAbsent(categoryName, k -> new HashMap<>());
+
+                OccurrenceCursor cursor = seriesOccurrences(series, from, to);
+                int seriesMinutes = 0;
+                while (cursor.hasNext()) {
+                    long day = cursor.nextEpochDay();
+                    if (excludedDays.contains(day)) {
+                        continue;
+                    }
+                    String period = formatPeriod(java.time.LocalDate.ofEpochDay(day), type);
+                    totalByPeriod.merge(period, duration, Integer::sum);
+                    categoryByPeriod.merge(period, duration, Integer::sum);
+                    seriesMinutes += duration;
+                }
+                totalDurations.merge(categoryName, seriesMinutes, Integer::sum);
             }
         }
 
+        // 3. Mise en forme selon l'axe des périodes
+        PeriodAxis axis = periodAxis(from, to, type);
+        List<Integer> data = new java.util.ArrayList<>();
+        for (String period : axis.periods()) {
+            data.add(totalByPeriod.getOrDefault(period, 0));
+        }
+        Map<String, List<Integer>> byCategory = new java.util.TreeMap<>();
+        for (Map.Entry<String, Map<String, Integer>> entry : totalByCategoryAndPeriod.entrySet()) {
+            List<Integer> categoryData = new java.util.ArrayList<>();
+            for (String period : axis.periods()) {
+                categoryData.add(entry.getValue().getOrDefault(period, 0));
+            }
+            byCategory.put(entry.getKey(), categoryData);
+        }
+
+        Map<String, Object> total = new java.util.HashMap<>();
+        total.put("labels", axis.labels());
+        total.put("data", data);
+
+        Map<String, Object> result = new java.util.HashMap<>();
+        result.put("categories", totalDurations.entrySet().stream()
+            .map(e -> new CategoryStatDTO(e.getKey(), e.getValue()))
+            .collect(Collectors.toList()));
+        result.put("total", total);
+        result.put("byCategory", byCategory);
+        return result;
+    }
+
+    /**
+     * Périodes affichées (clés au format de formatPeriod) et leurs libellés
+     */
+    private record PeriodAxis(List<String> periods, List<String> labels) {
+    }
+
+    private PeriodAxis periodAxis(LocalDateTime from, LocalDateTime to, String type) {
         List<String> periods = new java.util.ArrayList<>();
         List<String> labels = new java.util.ArrayList<>();
-        List<Integer> data = new java.util.ArrayList<>();
         java.time.format.TextStyle style = java.time.format.TextStyle.FULL;
         java.util.Locale locale = java.util.Locale.FRENCH;
 
@@ -209,7 +395,6 @@ public class StatsService {
                 String period = day.toString();
                 periods.add(period);
                 labels.add(day.getDayOfWeek().getDisplayName(style, locale));
-                data.add(totalByPeriod.getOrDefault(period, 0));
             }
         } else if ("month".equalsIgnoreCase(type)) {
             // Générer toutes les semaines entre from et to
@@ -225,7 +410,6 @@ public class StatsService {
                 if (!seen.contains(period)) {
                     periods.add(period);
                     labels.add(String.format("%02d/%02d", d.getDayOfMonth(), d.getMonthValue()));
-                    data.add(totalByPeriod.getOrDefault(period, 0));
                     seen.add(period);
                 }
                 d = d.plusWeeks(1);
@@ -240,18 +424,14 @@ public class StatsService {
                 periods.add(period);
                 java.time.Month month = d.getMonth();
                 labels.add(month.getDisplayName(style, locale));
-                data.add(totalByPeriod.getOrDefault(period, 0));
                 d = d.plusMonths(1);
             }
         }
 
-        Map<String, Object> result = new java.util.HashMap<>();
-        result.put("labels", labels);
-        result.put("data", data);
-        return result;
+        return new PeriodAxis(periods, labels);
     }
 
-    private String formatPeriod(LocalDateTime date, String type) {
+    private String formatPeriod(java.time.LocalDate date, String type) {
         if ("month".equalsIgnoreCase(type)) {
             java.time.temporal.WeekFields weekFields = java.time.temporal.WeekFields.ISO;
             int weekNumber = date.get(weekFields.weekOfWeekBasedYear());
@@ -260,7 +440,7 @@ public class StatsService {
         } else if ("year".equalsIgnoreCase(type)) {
             return String.format("%d-%02d", date.getYear(), date.getMonthValue());
         } else {
-            return date.toLocalDate().toString();
+            return date.toString();
         }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.tempo.application.service;
+
+import com.tempo.application.repository.WorktimeRepository;
+import com.tempo.application.utils.LoggerUtils;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Création anticipée des partitions mensuelles de la table worktime (voir V011).
+ * Un worktime hors des partitions existantes tombe dans worktime_default ;
+ * il est déplacé dans sa partition lorsque celle-ci est créée.
+ */
+@Service
+public class WorktimePartitionService {
+
+    private static final Logger logger = LoggerUtils.getLogger(WorktimePartitionService.class);
+
+    @Autowired
+    private WorktimeRepository worktimeRepository;
+
+    @Value("${app.worktime.partitions.months-ahead:12}")
+    private int monthsAhead;
+
+    @Scheduled(cron = "${app.worktime.partitions.cron:0 30 3 * * *}")
+    @Transactional
+    public void ensureFuturePartitions() {
+        Integer created = worktimeRepository.ensureWorktimePartitions(monthsAhead);
+        if (created != null && created > 0) {
+            LoggerUtils.info(logger, "Created " + created + " worktime partitions (" + monthsAhead + " months ahead)");
+        }
+    }
+}
@@ -1,27 +1,30 @@
 package com.tempo.application.service;
 
 import com.tempo.application.model.worktimeSeries.WorktimeSeries;
+import com.tempo.application.model.worktimeSeries.WorktimeSeriesRequestDTO;
+import com.tempo.application.model.worktimeSeries.WorktimeSeriesResponseDTO;
+import com.tempo.application.model.pagination.CursorPageDTO;
 import com.tempo.application.model.category.Category;
 import com.tempo.application.model.user.User;
-import com.tempo.application.model.recurrenceException.RecurrenceException;
 import com.tempo.application.repository.CategoryRepository;
 import com.tempo.application.repository.UserRepository;
 import com.tempo.application.repository.WorkTimeSeriesRepository;
-import com.tempo.application.repository.RecurrenceExceptionRepository;
 
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.tempo.application.utils.KeysetCursor;
 import com.tempo.application.utils.LoggerUtils;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 import java.util.ArrayList;
-import java.util.Set; 
-
-import org.springframework.cache.annotation.CacheEvict;
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
 public class WorktimeSeriesService {
@@ -38,7 +41,19 @@ public class WorktimeSeriesService {
     private UserRepository userRepository;
 
     @Autowired
-    private RecurrenceExceptionRepository recurrenceExceptionRepository;
+    private ScheduleCache scheduleCache;
+
+    @Autowired
+    private SeriesOccurrenceService seriesOccurrenceService;
+
+    @Autowired
+    private StatsCache statsCache;
+
+    @Autowired
+    private SeriesExceptionLinkService seriesExceptionLinkService;
+
+    @Value("${app.batch.max-entries:1000}")
+    private int maxBatchEntries;
 
     /**
      * Crée une nouvelle série de créneaux horaires
@@ -46,27 +61,11 @@ public class WorktimeSeriesService {
      * @param request La série à créer
      * @return La série créée avec son ID généré
      */
-    @CacheEvict(value = "categoryStats", allEntries = true)
+    @Transactional
     public WorktimeSeries createWorktimeSeries(WorktimeSeries request) {
         LoggerUtils.info(logger, "Creating new worktime series");
         
-        if (request.getStartDate() != null && request.getEndDate() != null && 
-            request.getStartDate().isAfter(request.getEndDate())) {
-            throw new IllegalArgumentException("Start date must be before end date.");
-        }
-
-        // Vérification des nouveaux champs startTime et endTime
-        if (request.getStartHour() == null) {
-            throw new IllegalArgumentException("Start time is required.");
-        }
-        
-        if (request.getEndHour() == null) {
-            throw new IllegalArgumentException("End time is required.");
-        }
-        
-        if (request.getStartHour().isAfter(request.getEndHour())) {
-            throw new IllegalArgumentException("Start time must be before end time.");
-        }
+        validateSeries(request);
 
         if (!userRepository.existsById(request.getUser().getId())) {
             throw new IllegalArgumentException("User not found.");
@@ -76,42 +75,102 @@ public class WorktimeSeriesService {
         Category category = categoryRepository.findById(request.getCategory().getId())
             .orElseThrow(() -> new IllegalArgumentException("Category not found."));
         request.setCategory(category);
-        
-        // Vérifier que la règle de récurrence est fournie
-        if (request.getRecurrence() == null) {
-            throw new IllegalArgumentException("Recurrence rule is required.");
+        request.setExceptions(new ArrayList<>());
+
+        WorktimeSeries savedSeries = repository.save(request);
+
+        // Lier en SQL les pauses de l'utilisateur qui chevauchent la série (sauf si ignoreExceptions)
+        savedSeries = seriesExceptionLinkService.syncLinks(savedSeries);
+
+        seriesOccurrenceService.rematerialize(savedSeries);
+        scheduleCache.invalidate(savedSeries.getUser().getId(), savedSeries.getStartDate(), savedSeries.getEndDate());
+        statsCache.evictUser(savedSeries.getUser().getId());
+        return savedSeries;
+    }
+    
+    /**
+     * Crée plusieurs séries en une transaction (import en masse).
+     * Toutes les séries sont validées avant insertion : une série invalide annule tout le lot.
+     * Les insertions partent en batch JDBC, les pauses sont liées à toutes les séries en une requête.
+     * 
+     * @param requests Les séries à créer (au plus app.batch.max-entries)
+     * @param user L'utilisateur propriétaire des séries
+     * @return Les séries créées, dans l'ordre de la requête
+     */
+    @Transactional
+    public List<WorktimeSeries> createWorktimeSeriesBatch(List<WorktimeSeriesRequestDTO> requests, User user) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("At least one worktime series is required.");
+        }
+        if (requests.size() > maxBatchEntries) {
+            throw new IllegalArgumentException("At most " + maxBatchEntries + " worktime series can be created at once.");
         }
+        LoggerUtils.info(logger, "Creating " + requests.size() + " worktime series for user id: " + user.getId());
 
-        // Si ignoreExceptions est false, chercher les exceptions qui se chevauchent
-        if (!Boolean.TRUE.equals(request.getIgnoreExceptions())) {
-            List<RecurrenceException> overlappingExceptions = recurrenceExceptionRepository.findOverlappingExceptions(
-                request.getStartDate(),
-                request.getEndDate() != null ? request.getEndDate() : LocalDateTime.now().plusYears(100)
-            );
-
-            // Lier les exceptions qui se chevauchent à la série
-            request.setExceptions(new ArrayList<>(overlappingExceptions));
-            
-            // Mettre à jour la relation bidirectionnelle
-            for (RecurrenceException exception : overlappingExceptions) {
-                boolean alreadyLinked = exception.getSeries().stream()
-                    .anyMatch(series -> series.getId() != null && series.getId().equals(request.getId()));
-                if (!alreadyLinked) {
-                    exception.getSeries().add(request);
-                }
+        Map<Integer, Category> categoriesById = new HashMap<>();
+        for (Category category : categoryRepository.findAllByUserOrderByNameAsc(user)) {
+            categoriesById.put(category.getId(), category);
+        }
+
+        // Période couverte par le lot, pour l'invalidation du planning
+        LocalDateTime firstStart = null;
+        LocalDateTime lastEnd = null;
+        boolean unbounded = false;
+        List<WorktimeSeries> seriesToSave = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            WorktimeSeriesRequestDTO request = requests.get(i);
+            if (request.getStartDate() == null) {
+                throw new IllegalArgumentException("Entry " + i + ": start date is required.");
+            }
+            Category category = request.getCategory() != null ? categoriesById.get(request.getCategory().getId()) : null;
+            if (category == null) {
+                throw new IllegalArgumentException("Entry " + i + ": category not found or does not belong to this user.");
+            }
+            WorktimeSeries series = WorktimeSeries.builder()
+                .user(user)
+                .category(category)
+                .startDate(request.getStartDate())
+                .endDate(request.getEndDate())
+                .startHour(request.getStartHour())
+                .endHour(request.getEndHour())
+                .recurrence(request.getRecurrence())
+                .ignoreExceptions(Boolean.TRUE.equals(request.getIgnoreExceptions()))
+                .build();
+            try {
+                validateSeries(series);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Entry " + i + ": " + e.getMessage());
             }
+            seriesToSave.add(series);
+
+            LocalDateTime end = request.getEndDate() != null ? request.getEndDate() : request.getStartDate();
+            firstStart = firstStart == null || request.getStartDate().isBefore(firstStart) ? request.getStartDate() : firstStart;
+            lastEnd = lastEnd == null || end.isAfter(lastEnd) ? end : lastEnd;
+            unbounded |= request.getEndDate() == null;
         }
 
-        WorktimeSeries savedSeries = repository.save(request);
+        List<Long> seriesIds = repository.saveAll(seriesToSave).stream()
+            .map(WorktimeSeries::getId)
+            .toList();
 
-        // Sauvegarder les exceptions mises à jour si nécessaire
-        if (!Boolean.TRUE.equals(request.getIgnoreExceptions()) && !request.getExceptions().isEmpty()) {
-            recurrenceExceptionRepository.saveAll(request.getExceptions());
+        // Pauses liées à toutes les séries du lot en une requête, séries rechargées avec leurs exceptions
+        Map<Long, WorktimeSeries> linkedById = new HashMap<>();
+        for (WorktimeSeries series : seriesExceptionLinkService.syncLinks(seriesIds)) {
+            linkedById.put(series.getId(), series);
         }
+        List<WorktimeSeries> savedSeries = seriesIds.stream()
+            .map(linkedById::get)
+            .toList();
 
+        for (WorktimeSeries series : savedSeries) {
+            seriesOccurrenceService.rematerialize(series);
+        }
+        // Une seule invalidation pour tout le lot
+        scheduleCache.invalidate(user.getId(), firstStart, unbounded ? null : lastEnd);
+        statsCache.evictUser(user.getId());
         return savedSeries;
     }
-    
+
     /**
      * Met à jour une série de créneaux horaires existante
      * 
@@ -119,7 +178,7 @@ public class WorktimeSeriesService {
      * @param request La série avec les nouvelles valeurs
      * @return La série mise à jour
      */
-    @CacheEvict(value = "categoryStats", allEntries = true)
+    @Transactional
     public WorktimeSeries updateWorktimeSeries(Long id, WorktimeSeries request) {
         LoggerUtils.info(logger, "Updating worktime series with id: " + id);
         
@@ -150,6 +209,9 @@ public class WorktimeSeriesService {
             throw new IllegalArgumentException("You can only update your own worktime series.");
         }
         
+        // Invalider l'ancienne plage de la série avant modification
+        scheduleCache.invalidate(existingSeries.getUser().getId(), existingSeries.getStartDate(), existingSeries.getEndDate());
+
         // Mise à jour des propriétés
         if (request.getRecurrence() != null) {
             existingSeries.setRecurrence(request.getRecurrence());
@@ -169,73 +231,19 @@ public class WorktimeSeriesService {
             existingSeries.setEndHour(request.getEndHour());
         }
 
-        // Gestion des exceptions de récurrence
         if (request.getIgnoreExceptions() != null) {
             existingSeries.setIgnoreExceptions(request.getIgnoreExceptions());
-            
-            if (Boolean.TRUE.equals(request.getIgnoreExceptions())) {
-                // Si on ignore maintenant les exceptions, on supprime toutes les liaisons
-                List<RecurrenceException> toSave = new ArrayList<>();
-                List<RecurrenceException> currentExceptions = new ArrayList<>(existingSeries.getExceptions());
-                for (RecurrenceException exception : currentExceptions) {
-                    // Retirer côté propriétaire par ID pour éviter les problèmes d'equals()
-                    exception.getSeries().removeIf(s -> s.getId() != null && s.getId().equals(existingSeries.getId()));
-                    toSave.add(exception);
-                }
-                existingSeries.getExceptions().clear();
-                if (!toSave.isEmpty()) {
-                    recurrenceExceptionRepository.saveAll(toSave);
-                }
-            } else {
-                // Si on ne les ignore plus, on cherche les exceptions qui se chevauchent
-                List<RecurrenceException> overlappingExceptions = recurrenceExceptionRepository.findOverlappingExceptions(
-                    existingSeries.getStartDate(),
-                    existingSeries.getEndDate() != null ? existingSeries.getEndDate() : LocalDateTime.now().plusYears(100)
-                );
-
-                // Calculer le delta entre actuel et overlap
-                Set<Long> overlapIds = overlappingExceptions.stream()
-                    .map(RecurrenceException::getId)
-                    .collect(java.util.stream.Collectors.toSet());
-
-                List<RecurrenceException> toSave = new ArrayList<>();
-
-                // Retirer les liens obsolètes (présents actuellement mais pas dans overlap)
-                List<RecurrenceException> currentExceptions = new ArrayList<>(existingSeries.getExceptions());
-                for (RecurrenceException exception : currentExceptions) {
-                    if (exception.getId() != null && !overlapIds.contains(exception.getId())) {
-                        exception.getSeries().removeIf(s -> s.getId() != null && s.getId().equals(existingSeries.getId()));
-                        toSave.add(exception);
-                    }
-                }
-
-                // Ajouter les nouveaux liens (dans overlap mais pas encore liés côté propriétaire)
-                for (RecurrenceException exception : overlappingExceptions) {
-                    boolean alreadyLinked = exception.getSeries().stream()
-                        .anyMatch(s -> s.getId() != null && s.getId().equals(existingSeries.getId()));
-                    if (!alreadyLinked) {
-                        exception.getSeries().add(existingSeries);
-                        toSave.add(exception);
-                    }
-                }
-
-                // Mettre à jour la collection côté inverse pour rester cohérent
-                existingSeries.getExceptions().clear();
-                existingSeries.getExceptions().addAll(overlappingExceptions);
-
-                if (!toSave.isEmpty()) {
-                    recurrenceExceptionRepository.saveAll(toSave);
-                }
-            }
         }
         
         WorktimeSeries savedSeries = repository.save(existingSeries);
 
-        // Sauvegarder les exceptions restantes liées si nécessaire (préservation)
-        if (!Boolean.TRUE.equals(savedSeries.getIgnoreExceptions()) && !savedSeries.getExceptions().isEmpty()) {
-            recurrenceExceptionRepository.saveAll(savedSeries.getExceptions());
-        }
+        // Liens aux pauses recalculés par différence selon la nouvelle période et ignoreExceptions :
+        // seuls les liens ajoutés ou retirés sont écrits
+        savedSeries = seriesExceptionLinkService.syncLinks(savedSeries);
 
+        seriesOccurrenceService.rematerialize(savedSeries);
+        scheduleCache.invalidate(savedSeries.getUser().getId(), savedSeries.getStartDate(), savedSeries.getEndDate());
+        statsCache.evictUser(savedSeries.getUser().getId());
         return savedSeries;
     }
     
@@ -245,7 +253,6 @@ public class WorktimeSeriesService {
      * @param id L'identifiant de la série à supprimer
      * @param userId L'identifiant de l'utilisateur (pour vérification d'autorisation)
      */
-    @CacheEvict(value = "categoryStats", allEntries = true)
     public void deleteWorktimeSeries(Long id, Integer userId) {
         LoggerUtils.info(logger, "Deleting worktime series with id: " + id);
         
@@ -257,7 +264,10 @@ public class WorktimeSeriesService {
             throw new IllegalArgumentException("You can only delete your own worktime series.");
         }
         
+        // Les occurrences matérialisées sont supprimées en cascade
         repository.delete(existingSeries);
+        scheduleCache.invalidate(userId, existingSeries.getStartDate(), existingSeries.getEndDate());
+        statsCache.evictUser(userId);
     }
     
     /**
@@ -279,6 +289,7 @@ public class WorktimeSeriesService {
      * @param userId L'identifiant de l'utilisateur
      * @return La liste des séries associées à cet utilisateur
      */
+    @Transactional(readOnly = true)
     public List<WorktimeSeries> getAllWorkTimeSeriesByUserId(Integer userId) {
         LoggerUtils.info(logger, "Fetching all worktime series for user id: " + userId);
         
@@ -288,12 +299,47 @@ public class WorktimeSeriesService {
         return repository.findByUser(user);
     }
     
+    /**
+     * Page des séries de l'utilisateur, de la plus récente à la plus ancienne (pagination keyset)
+     * 
+     * @param userId L'identifiant de l'utilisateur
+     * @param cursor null pour la première page, sinon le nextCursor de la page précédente
+     * @param limit Le nombre d'éléments de la page (1 à CursorPageDTO.MAX_LIMIT)
+     * @return La page de séries et le curseur de la page suivante
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<WorktimeSeriesResponseDTO> getWorkTimeSeriesPageByUserId(Integer userId, String cursor, int limit) {
+        if (limit < 1 || limit > CursorPageDTO.MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + CursorPageDTO.MAX_LIMIT + ".");
+        }
+        // Un élément de plus pour savoir s'il existe une page suivante
+        List<WorktimeSeriesResponseDTO> items;
+        if (cursor == null || cursor.isBlank()) {
+            items = repository.findPageByUserId(userId, Limit.of(limit + 1));
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            items = repository.findPageByUserIdAfter(userId, position.getPosition(), position.getId(), Limit.of(limit + 1));
+        }
+
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items = new ArrayList<>(items.subList(0, limit));
+            WorktimeSeriesResponseDTO last = items.get(limit - 1);
+            nextCursor = KeysetCursor.encode(last.getStartDate(), last.getId());
+        }
+        return CursorPageDTO.<WorktimeSeriesResponseDTO>builder()
+            .items(items)
+            .nextCursor(nextCursor)
+            .build();
+    }
+
     /**
      * Récupère toutes les séries de créneaux horaires actifs d'un utilisateur
      * 
      * @param userId L'identifiant de l'utilisateur
      * @return La liste des séries actives associées à cet utilisateur
      */
+    @Transactional(readOnly = true)
     public List<WorktimeSeries> getAllActiveWorkTimeSeriesByUserId(Integer userId) {
         LoggerUtils.info(logger, "Fetching active worktime series for user id: " + userId);
         
@@ -310,28 +356,11 @@ public class WorktimeSeriesService {
      * @param userId L'identifiant de l'utilisateur
      * @return La liste des séries actives à cette date pour cet utilisateur
      */
+    @Transactional(readOnly = true)
     public List<WorktimeSeries> getActiveWorkTimeSeriesForDateAndUser(LocalDate date, Integer userId) {
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
-        LocalDateTime targetDate = date.atStartOfDay();
-        List<WorktimeSeries> allActiveSeries = repository.findByUser(user);
-        
-        List<WorktimeSeries> filteredSeries = allActiveSeries.stream()
-            .filter(series -> {
-                // CORRECTION : Une série est active si elle commence AVANT ou LE MÊME JOUR que la date de test
-                // Ancienne logique : afterStart = series.getStartDate().isBefore(targetDate) || series.getStartDate().isEqual(targetDate);
-                // Nouvelle logique : afterStart = true si la série commence le même jour ou avant
-                boolean afterStart = series.getStartDate().toLocalDate().isBefore(date) || series.getStartDate().toLocalDate().isEqual(date);
-                boolean beforeEnd = series.getEndDate() == null || targetDate.isBefore(series.getEndDate()) || targetDate.isEqual(series.getEndDate());
-                boolean matchesRecurrence = series.getRecurrence() != null;
-                
-                boolean isActive = afterStart && beforeEnd && matchesRecurrence;
-                
-                return isActive;
-            })
-            .collect(Collectors.toList());
-            
-        return filteredSeries;
+        // Une série est active si elle commence le même jour ou avant et se termine à partir de ce jour :
+        // le filtrage est fait par la base (index user_id, start_date, end_date)
+        return repository.findByUserIdAndPeriodWithExceptions(userId, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
     }
 
     /**
@@ -341,20 +370,39 @@ public class WorktimeSeriesService {
      * @param userId L'identifiant de l'utilisateur
      * @return La liste des séries actives pour ce mois et cet utilisateur
      */
+    @Transactional(readOnly = true)
     public List<WorktimeSeries> getActiveWorkTimeSeriesForMonthAndUser(LocalDate date, Integer userId) {
         LoggerUtils.info(logger, "Fetching active worktime series for month: " + date.getMonth() + " and user id: " + userId);
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
         LocalDateTime startOfMonth = date.withDayOfMonth(1).atStartOfDay();
         LocalDateTime startOfNextMonth = date.plusMonths(1).withDayOfMonth(1).atStartOfDay();
-        List<WorktimeSeries> allActiveSeries = repository.findByUser(user);
-        return allActiveSeries.stream()
-            .filter(series -> {
-                boolean afterStart = series.getStartDate().isBefore(startOfNextMonth) || series.getStartDate().isEqual(startOfNextMonth);
-                boolean beforeEnd = series.getEndDate() == null || startOfMonth.isBefore(series.getEndDate()) || startOfMonth.isEqual(series.getEndDate());
-                boolean matchesRecurrence = series.getRecurrence() != null;
-                return afterStart && beforeEnd && matchesRecurrence;
-            })
-            .collect(Collectors.toList());
+        return repository.findByUserIdAndPeriodWithExceptions(userId, startOfMonth, startOfNextMonth);
+    }
+
+    /**
+     * Vérifie les dates, les horaires et la règle de récurrence d'une nouvelle série
+     */
+    private void validateSeries(WorktimeSeries request) {
+        if (request.getStartDate() != null && request.getEndDate() != null && 
+            request.getStartDate().isAfter(request.getEndDate())) {
+            throw new IllegalArgumentException("Start date must be before end date.");
+        }
+
+        // Vérification des nouveaux champs startTime et endTime
+        if (request.getStartHour() == null) {
+            throw new IllegalArgumentException("Start time is required.");
+        }
+        
+        if (request.getEndHour() == null) {
+            throw new IllegalArgumentException("End time is required.");
+        }
+        
+        if (request.getStartHour().isAfter(request.getEndHour())) {
+            throw new IllegalArgumentException("Start time must be before end time.");
+        }
+
+        // Vérifier que la règle de récurrence est fournie
+        if (request.getRecurrence() == null) {
+            throw new IllegalArgumentException("Recurrence rule is required.");
+        }
     }
 }
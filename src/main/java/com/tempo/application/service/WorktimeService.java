@@ -2,21 +2,29 @@ package com.tempo.application.service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.tempo.application.model.category.Category;
+import com.tempo.application.model.pagination.CursorPageDTO;
 import com.tempo.application.model.user.User;
 import com.tempo.application.model.worktime.Worktime;
 import com.tempo.application.model.worktime.DTO.WorktimeRequestDTO;
+import com.tempo.application.model.worktime.DTO.WorktimeResponseDTO;
 import com.tempo.application.repository.CategoryRepository;
 import com.tempo.application.repository.UserRepository;
 import com.tempo.application.repository.WorktimeRepository;
+import com.tempo.application.utils.KeysetCursor;
 import com.tempo.application.utils.LoggerUtils;
 
 
@@ -34,7 +42,16 @@ public class WorktimeService {
     @Autowired
     private UserRepository userRepository;
 
-    @CacheEvict(value = "categoryStats", allEntries = true)
+    @Autowired
+    private ScheduleCache scheduleCache;
+
+    @Autowired
+    private StatsCache statsCache;
+
+    @Value("${app.batch.max-entries:1000}")
+    private int maxBatchEntries;
+
+    @Transactional
     public Worktime createWorktime(WorktimeRequestDTO worktimeRequest, Integer userId) {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User not found"));
@@ -65,19 +82,121 @@ public class WorktimeService {
         worktime.setEndHour(worktimeRequest.getEndHour());
         worktime.setCategory(category);
         worktime.setUser(user);
-        return worktimeRepository.save(worktime);
+        Worktime savedWorktime = worktimeRepository.save(worktime);
+        applyToDailyRollup(savedWorktime, 1);
+        invalidateSchedule(savedWorktime);
+        return savedWorktime;
     }
 
-    @CacheEvict(value = "categoryStats", allEntries = true)
-    public void deleteWorktimeById(int id) {
-        if (worktimeRepository.existsById(id)) {
-            worktimeRepository.deleteById(id);
+    /**
+     * Crée plusieurs worktimes en une transaction (import en masse).
+     * Toutes les entrées sont validées avant insertion : une entrée invalide annule tout le lot.
+     * Les insertions partent en batch JDBC, le cumul journalier est mis à jour une fois par (jour, catégorie).
+     *
+     * @param worktimeRequests Les worktimes à créer (au plus app.batch.max-entries)
+     * @param userId L'ID de l'utilisateur
+     * @return Les worktimes créés, dans l'ordre de la requête
+     */
+    @Transactional
+    public List<Worktime> createWorktimes(List<WorktimeRequestDTO> worktimeRequests, Integer userId) {
+        if (worktimeRequests == null || worktimeRequests.isEmpty()) {
+            throw new IllegalArgumentException("At least one worktime is required.");
+        }
+        if (worktimeRequests.size() > maxBatchEntries) {
+            throw new IllegalArgumentException("At most " + maxBatchEntries + " worktimes can be created at once.");
+        }
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+        LoggerUtils.info(logger, "Creating " + worktimeRequests.size() + " worktimes for user id: " + userId);
+
+        // Catégories de l'utilisateur chargées une seule fois, créées au besoin (une fois par nom)
+        Map<Integer, Category> categoriesById = new HashMap<>();
+        Map<String, Category> categoriesByName = new HashMap<>();
+        for (Category category : categoryRepository.findAllByUserOrderByNameAsc(user)) {
+            categoriesById.put(category.getId(), category);
+            categoriesByName.putIfAbsent(category.getName(), category);
+        }
+
+        List<Worktime> worktimes = new ArrayList<>(worktimeRequests.size());
+        for (int i = 0; i < worktimeRequests.size(); i++) {
+            WorktimeRequestDTO request = worktimeRequests.get(i);
+            if (request.getStartHour() == null) {
+                throw new IllegalArgumentException("Entry " + i + ": start hour is required.");
+            }
+            if (request.getEndHour() != null && request.getEndHour().isBefore(request.getStartHour())) {
+                throw new IllegalArgumentException("Entry " + i + ": end hour must be after start hour.");
+            }
+            if (request.getCategory() == null) {
+                throw new IllegalArgumentException("Entry " + i + ": category is required.");
+            }
+
+            Category category;
+            if (request.getCategory().getId() == null || request.getCategory().getId() == 0) {
+                String name = request.getCategory().getName();
+                if (name == null || name.isBlank()) {
+                    throw new IllegalArgumentException("Entry " + i + ": category id or name is required.");
+                }
+                category = categoriesByName.get(name);
+                if (category == null) {
+                    LoggerUtils.info(logger, "Creating new category: " + name + " for user: " + user.getEmail());
+                    category = categoryRepository.save(Category.builder().name(name).user(user).build());
+                    categoriesByName.put(name, category);
+                }
+            } else {
+                category = categoriesById.get(request.getCategory().getId());
+                if (category == null) {
+                    throw new IllegalArgumentException("Entry " + i + ": category not found or does not belong to this user.");
+                }
+            }
+
+            Worktime worktime = new Worktime();
+            worktime.setStartHour(request.getStartHour());
+            worktime.setEndHour(request.getEndHour());
+            worktime.setCategory(category);
+            worktime.setUser(user);
+            worktimes.add(worktime);
+        }
+
+        List<Worktime> savedWorktimes = worktimeRepository.saveAll(worktimes);
+
+        // Un upsert du cumul par (jour, catégorie) plutôt qu'un par worktime
+        Map<LocalDate, Map<Integer, long[]>> rollup = new HashMap<>();
+        for (Worktime worktime : savedWorktimes) {
+            Long duration = worktime.getDuration();
+            if (duration == null) {
+                continue;
+            }
+            long[] totals = rollup
+                .computeIfAbsent(worktime.getStartHour().toLocalDate(), day -> new HashMap<>())
+                .computeIfAbsent(worktime.getCategory().getId(), id -> new long[2]);
+            totals[0] += duration;
+            totals[1]++;
+        }
+        rollup.forEach((day, byCategory) -> byCategory.forEach((categoryId, totals) ->
+            worktimeRepository.addToDailyRollup(userId, day, categoryId, totals[0], (int) totals[1])));
+
+        // Une seule invalidation pour tout le lot
+        statsCache.evictUser(userId);
+        if (savedWorktimes.stream().anyMatch(worktime -> worktime.getEndHour() == null)) {
+            scheduleCache.invalidateUser(userId);
         } else {
-            throw new RuntimeException("Worktime with id " + id + " does not exist.");
+            LocalDateTime first = savedWorktimes.stream().map(Worktime::getStartHour).min(LocalDateTime::compareTo).get();
+            LocalDateTime last = savedWorktimes.stream().map(Worktime::getEndHour).max(LocalDateTime::compareTo).get();
+            scheduleCache.invalidate(userId, first, last);
         }
+        return savedWorktimes;
     }
 
-    @CacheEvict(value = "categoryStats", allEntries = true)
+    @Transactional
+    public void deleteWorktimeById(int id) {
+        Worktime worktime = worktimeRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Worktime with id " + id + " does not exist."));
+        worktimeRepository.delete(worktime);
+        applyToDailyRollup(worktime, -1);
+        invalidateSchedule(worktime);
+    }
+
+    @Transactional
     public Worktime updateWorktime(WorktimeRequestDTO worktimeUpdateRequest, Integer id) {
         if (worktimeRepository.existsById(id)) {
             
@@ -89,7 +208,6 @@ public class WorktimeService {
             // Vérifier si on doit utiliser une catégorie existante ou en créer une nouvelle
             if (worktimeUpdateRequest.getCategory().getId() == 0) {
                 category = categoryRepository.findByNameAndUser(worktimeUpdateRequest.getCategory().getName(), user);
-                System.out.println("category:" + category);
                 if (category == null) {
                     LoggerUtils.info(logger, "Creating new category during worktime update: " + worktimeUpdateRequest.getCategory().getName());
                     category = Category.builder()
@@ -104,15 +222,22 @@ public class WorktimeService {
                     .orElseThrow(() -> new RuntimeException("Category not found or does not belong to this user"));
             }
                 
+            // Retirer l'ancienne version de l'agrégat et invalider l'ancienne plage avant modification
+            applyToDailyRollup(worktime, -1);
+            invalidateSchedule(worktime);
             worktime.setStartHour(worktimeUpdateRequest.getStartHour());
             worktime.setEndHour(worktimeUpdateRequest.getEndHour());
             worktime.setCategory(category);
-            return worktimeRepository.save(worktime);
+            Worktime savedWorktime = worktimeRepository.save(worktime);
+            applyToDailyRollup(savedWorktime, 1);
+            invalidateSchedule(savedWorktime);
+            return savedWorktime;
         } else {
             throw new RuntimeException("Worktime with id " + id + " does not exist.");
         }
     }
 
+    @Transactional(readOnly = true)
     public List<Worktime> getAllUserWorktimes(int userId) {
         return worktimeRepository.findByUserId(userId);
     }
@@ -126,6 +251,38 @@ public class WorktimeService {
         }
     }
 
+    /**
+     * Page des worktimes de l'utilisateur, du plus récent au plus ancien (pagination keyset)
+     * @param cursor null pour la première page, sinon le nextCursor de la page précédente
+     * @param limit nombre d'éléments de la page (1 à CursorPageDTO.MAX_LIMIT)
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<WorktimeResponseDTO> getUserWorktimesPage(Integer userId, String cursor, int limit) {
+        if (limit < 1 || limit > CursorPageDTO.MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + CursorPageDTO.MAX_LIMIT + ".");
+        }
+        // Un élément de plus pour savoir s'il existe une page suivante
+        List<WorktimeResponseDTO> items;
+        if (cursor == null || cursor.isBlank()) {
+            items = worktimeRepository.findPageByUserId(userId, Limit.of(limit + 1));
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            items = worktimeRepository.findPageByUserIdAfter(userId, position.getPosition(), (int) position.getId(), Limit.of(limit + 1));
+        }
+
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items = new ArrayList<>(items.subList(0, limit));
+            WorktimeResponseDTO last = items.get(limit - 1);
+            nextCursor = KeysetCursor.encode(last.getStartHour(), last.getId());
+        }
+        return CursorPageDTO.<WorktimeResponseDTO>builder()
+            .items(items)
+            .nextCursor(nextCursor)
+            .build();
+    }
+
+    @Transactional(readOnly = true)
     public List<Worktime> getAllUserWorktimesByDate(LocalDate date) {
         LocalDateTime startOfDay = date.atStartOfDay();
         LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
@@ -139,15 +296,18 @@ public class WorktimeService {
      * @param userId L'ID de l'utilisateur
      * @return Une liste des créneaux horaires pour cette date et cet utilisateur
      */
+    @Transactional(readOnly = true)
     public List<Worktime> getAllUserWorktimesByDateAndUserId(LocalDate date, Integer userId) {
         LoggerUtils.info(logger, "Fetching worktimes for date: " + date + " and user id: " + userId);
         LocalDateTime startOfDay = date.atStartOfDay();
         LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
-        return worktimeRepository.findOverlappingWorktimesByUserAndPeriod(user, startOfDay, endOfDay);
+        LocalDateTime startLowerBound = startOfDay.minusMinutes(worktimeRepository.findMaxWorktimeMinutes(userId));
+        return worktimeRepository.findOverlappingWorktimesByUserAndPeriod(user, startLowerBound, startOfDay, endOfDay);
     }
 
+    @Transactional(readOnly = true)
     public List<Worktime> getAllUserWorktimesByMonthAndUserId(LocalDate date, Integer userId) {
         LoggerUtils.info(logger, "Fetching worktimes for month: " + date.getMonth() + " and user id: " + userId);
         LocalDateTime startOfMonth = date.withDayOfMonth(1).atStartOfDay();
@@ -164,10 +324,42 @@ public class WorktimeService {
      * @param userId L'ID de l'utilisateur
      * @return La liste des worktimes en cours pour cet utilisateur
      */
+    @Transactional(readOnly = true)
     public List<Worktime> getOngoingWorktimesByUserId(Integer userId) {
         LoggerUtils.info(logger, "Fetching ongoing worktimes (endTime is null) for user id: " + userId);
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
         return worktimeRepository.findByUserAndEndHourIsNull(user);
     }
+
+    /**
+     * Ajoute (sign = 1) ou retire (sign = -1) un worktime terminé de l'agrégat journalier
+     * utilisé par les statistiques. Les chronos en cours n'y figurent pas.
+     */
+    private void applyToDailyRollup(Worktime worktime, int sign) {
+        Long duration = worktime.getDuration();
+        if (duration == null) {
+            return;
+        }
+        worktimeRepository.addToDailyRollup(
+            worktime.getUser().getId(),
+            worktime.getStartHour().toLocalDate(),
+            worktime.getCategory() != null ? worktime.getCategory().getId() : null,
+            sign * duration,
+            sign);
+    }
+
+    /**
+     * Invalide les plannings et statistiques en cache concernés par ce worktime.
+     * Un chrono en cours apparaît sur tous les jours : tout le planning de l'utilisateur est invalidé.
+     */
+    private void invalidateSchedule(Worktime worktime) {
+        Integer userId = worktime.getUser().getId();
+        statsCache.evictUser(userId);
+        if (worktime.getStartHour() == null || worktime.getEndHour() == null) {
+            scheduleCache.invalidateUser(userId);
+        } else {
+            scheduleCache.invalidate(userId, worktime.getStartHour(), worktime.getEndHour());
+        }
+    }
 }
@@ -0,0 +1,362 @@
+package com.tempo.application.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Règle de récurrence RFC5545 analysée une seule fois et immuable.
+ *
+ * Parties prises en charge : FREQ (DAILY, WEEKLY, MONTHLY, YEARLY), INTERVAL, COUNT,
+ * UNTIL, BYDAY (avec ordinal, ex. 1MO, -1FR), BYMONTHDAY, BYMONTH et BYSETPOS.
+ * La semaine commence le lundi (WKST=MO). Les jours de la semaine (BYDAY) sont
+ * conservés sous forme de masque sur 7 bits (bit 0 = lundi ... bit 6 = dimanche).
+ *
+ * Les instances sont partagées via un cache borné indexé par la chaîne de la règle :
+ * utiliser {@link #of(String)} plutôt que de re-découper la règle à chaque appel.
+ * Le parcours des occurrences se fait via {@link RecurrenceUtils#occurrences}.
+ */
+public final class CompiledRecurrence {
+
+    /**
+     * Fréquences RFC5545 prises en charge
+     */
+    public enum Frequency {
+        DAILY,
+        WEEKLY,
+        MONTHLY,
+        YEARLY
+    }
+
+    private static final int CACHE_MAX_SIZE = 512;
+
+    private static final int[] NONE = new int[0];
+
+    private static final CompiledRecurrence EMPTY = new CompiledRecurrence(
+            "", null, 1, 0, Long.MAX_VALUE, false, 0, NONE, NONE, false, NONE, 0, NONE);
+
+    // Cache borné (Caffeine) : quelques dizaines de règles distinctes en pratique.
+    // Les lectures ne prennent pas de verrou global, contrairement à un LinkedHashMap en ordre d'accès
+    private static final Cache<String, CompiledRecurrence> CACHE = Caffeine.newBuilder()
+            .maximumSize(CACHE_MAX_SIZE)
+            .build();
+
+    private final String rule;
+    private final Frequency frequency;
+    private final int interval;
+    private final int count;
+    private final long untilDay;
+    private final boolean hasByDay;
+    private final int dayMask;
+    private final int[] byDayIndexes;
+    private final int[] byDayOrdinals;
+    private final boolean hasOrdinalByDay;
+    private final int[] byMonthDays;
+    private final int monthMask;
+    private final int[] bySetPos;
+
+    private CompiledRecurrence(String rule, Frequency frequency, int interval, int count, long untilDay,
+            boolean hasByDay, int dayMask, int[] byDayIndexes, int[] byDayOrdinals, boolean hasOrdinalByDay,
+            int[] byMonthDays, int monthMask, int[] bySetPos) {
+        this.rule = rule;
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.untilDay = untilDay;
+        this.hasByDay = hasByDay;
+        this.dayMask = dayMask;
+        this.byDayIndexes = byDayIndexes;
+        this.byDayOrdinals = byDayOrdinals;
+        this.hasOrdinalByDay = hasOrdinalByDay;
+        this.byMonthDays = byMonthDays;
+        this.monthMask = monthMask;
+        this.bySetPos = bySetPos;
+    }
+
+    /**
+     * Retourne la règle compilée correspondant à la chaîne donnée (mise en cache)
+     * @param rule exemple : "FREQ=WEEKLY;BYDAY=MO,WE,FR" ou "FREQ=MONTHLY;BYDAY=-1FR;COUNT=12"
+     * @return la règle compilée, jamais null (règle vide si rule est null ou vide)
+     */
+    public static CompiledRecurrence of(String rule) {
+        if (rule == null || rule.isEmpty()) {
+            return EMPTY;
+        }
+        return CACHE.get(rule, CompiledRecurrence::parse);
+    }
+
+    private static CompiledRecurrence parse(String rule) {
+        Frequency frequency = null;
+        int interval = 1;
+        int count = 0;
+        long untilDay = Long.MAX_VALUE;
+        boolean hasByDay = false;
+        int dayMask = 0;
+        List<int[]> byDay = new ArrayList<>();
+        int[] byMonthDays = NONE;
+        int monthMask = 0;
+        int[] bySetPos = NONE;
+
+        String body = rule.startsWith("RRULE:") ? rule.substring(6) : rule;
+        for (String part : body.split(";")) {
+            int separator = part.indexOf('=');
+            if (separator < 0) {
+                continue;
+            }
+            String key = part.substring(0, separator).trim();
+            String value = part.substring(separator + 1).trim();
+            switch (key) {
+                case "FREQ":
+                    frequency = parseFrequency(value);
+                    break;
+                case "INTERVAL":
+                    interval = Math.max(1, parseInt(value, 1));
+                    break;
+                case "COUNT":
+                    count = Math.max(0, parseInt(value, 0));
+                    break;
+                case "UNTIL":
+                    untilDay = parseUntil(value);
+                    break;
+                case "BYDAY":
+                    hasByDay = true;
+                    for (String code : value.split(",")) {
+                        int[] entry = parseByDay(code.trim());
+                        if (entry != null) {
+                            byDay.add(entry);
+                            dayMask |= 1 << entry[0];
+                        }
+                    }
+                    break;
+                case "BYMONTHDAY":
+                    byMonthDays = parseIntList(value, 31);
+                    break;
+                case "BYMONTH":
+                    for (int month : parseIntList(value, 12)) {
+                        if (month > 0) {
+                            monthMask |= 1 << (month - 1);
+                        }
+                    }
+                    break;
+                case "BYSETPOS":
+                    bySetPos = parseIntList(value, 366);
+                    break;
+                default:
+                    // Parties non gérées (WKST, BYHOUR...) : ignorées
+                    break;
+            }
+        }
+
+        int[] byDayIndexes = new int[byDay.size()];
+        int[] byDayOrdinals = new int[byDay.size()];
+        boolean hasOrdinalByDay = false;
+        for (int i = 0; i < byDay.size(); i++) {
+            byDayIndexes[i] = byDay.get(i)[0];
+            byDayOrdinals[i] = byDay.get(i)[1];
+            hasOrdinalByDay |= byDayOrdinals[i] != 0;
+        }
+        return new CompiledRecurrence(rule, frequency, interval, count, untilDay, hasByDay, dayMask,
+                byDayIndexes, byDayOrdinals, hasOrdinalByDay, byMonthDays, monthMask, bySetPos);
+    }
+
+    private static Frequency parseFrequency(String value) {
+        try {
+            return Frequency.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Liste d'entiers non nuls dans [-max, max], ex. "1,15,-1"
+     */
+    private static int[] parseIntList(String value, int max) {
+        int[] values = new int[value.split(",").length];
+        int size = 0;
+        for (String item : value.split(",")) {
+            int parsed = parseInt(item.trim(), 0);
+            if (parsed != 0 && Math.abs(parsed) <= max) {
+                values[size++] = parsed;
+            }
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * UNTIL au format date (20250630) ou date-heure (20250630T235959Z) : seul le jour est conservé
+     */
+    private static long parseUntil(String value) {
+        try {
+            if (value.length() >= 10 && value.charAt(4) == '-') {
+                return LocalDate.parse(value.substring(0, 10)).toEpochDay();
+            }
+            int year = Integer.parseInt(value.substring(0, 4));
+            int month = Integer.parseInt(value.substring(4, 6));
+            int day = Integer.parseInt(value.substring(6, 8));
+            return LocalDate.of(year, month, day).toEpochDay();
+        } catch (RuntimeException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Analyse une entrée BYDAY ("MO", "2TU", "-1FR")
+     * @return {index du jour (0 = lundi), ordinal (0 = tous)} ou null si invalide
+     */
+    private static int[] parseByDay(String code) {
+        if (code.length() < 2) {
+            return null;
+        }
+        DayOfWeek day = toDayOfWeek(code.substring(code.length() - 2));
+        if (day == null) {
+            return null;
+        }
+        int ordinal = 0;
+        if (code.length() > 2) {
+            String prefix = code.substring(0, code.length() - 2);
+            ordinal = parseInt(prefix.startsWith("+") ? prefix.substring(1) : prefix, 0);
+            if (ordinal == 0 || Math.abs(ordinal) > 53) {
+                return null;
+            }
+        }
+        return new int[] { day.getValue() - 1, ordinal };
+    }
+
+    /**
+     * Convertit un code de jour RFC5545 (MO, TU, WE, etc.) en DayOfWeek Java
+     */
+    private static DayOfWeek toDayOfWeek(String code) {
+        switch (code) {
+            case "MO":
+                return DayOfWeek.MONDAY;
+            case "TU":
+                return DayOfWeek.TUESDAY;
+            case "WE":
+                return DayOfWeek.WEDNESDAY;
+            case "TH":
+                return DayOfWeek.THURSDAY;
+            case "FR":
+                return DayOfWeek.FRIDAY;
+            case "SA":
+                return DayOfWeek.SATURDAY;
+            case "SU":
+                return DayOfWeek.SUNDAY;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Bit correspondant à un jour de la semaine dans le masque (lundi = bit 0)
+     */
+    public static int bit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+
+    public String getRule() {
+        return rule;
+    }
+
+    public boolean isEmpty() {
+        return rule.isEmpty();
+    }
+
+    /**
+     * @return la fréquence, ou null si la règle n'en définit pas de valide (aucune occurrence)
+     */
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return le nombre maximal d'occurrences (COUNT), 0 si illimité
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return le dernier jour epoch autorisé (UNTIL), Long.MAX_VALUE si absent
+     */
+    public long getUntilDay() {
+        return untilDay;
+    }
+
+    public boolean hasByDay() {
+        return hasByDay;
+    }
+
+    public int getDayMask() {
+        return dayMask;
+    }
+
+    /**
+     * @return true si le jour de la semaine fait partie du BYDAY de la règle
+     */
+    public boolean includes(DayOfWeek day) {
+        return (dayMask & bit(day)) != 0;
+    }
+
+    /**
+     * Vrai pour les règles hebdomadaires de pas 1 sans COUNT ni filtre autre que BYDAY/UNTIL :
+     * leurs occurrences se déduisent du seul masque de jours (comptage en O(1)).
+     */
+    public boolean isSimpleWeekly() {
+        return frequency == Frequency.WEEKLY && interval == 1 && count == 0 && !hasOrdinalByDay
+                && byMonthDays.length == 0 && monthMask == 0 && bySetPos.length == 0;
+    }
+
+    /**
+     * Masque de jours effectif d'une règle hebdomadaire : BYDAY, ou à défaut
+     * le jour de la semaine de la date de début (RFC5545)
+     */
+    int effectiveWeeklyMask(long startDay) {
+        return hasByDay ? dayMask : 1 << RecurrenceUtils.dayIndex(startDay);
+    }
+
+    boolean hasMonthFilter() {
+        return monthMask != 0;
+    }
+
+    boolean includesMonth(int month) {
+        return monthMask == 0 || (monthMask & (1 << (month - 1))) != 0;
+    }
+
+    int[] getByDayIndexes() {
+        return byDayIndexes;
+    }
+
+    int[] getByDayOrdinals() {
+        return byDayOrdinals;
+    }
+
+    int[] getByMonthDays() {
+        return byMonthDays;
+    }
+
+    int[] getBySetPos() {
+        return bySetPos;
+    }
+
+    @Override
+    public String toString() {
+        return rule;
+    }
+}
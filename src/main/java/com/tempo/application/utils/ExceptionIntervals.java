@@ -0,0 +1,174 @@
+package com.tempo.application.utils;
+
+import com.tempo.application.model.recurrenceException.ExceptionType;
+import com.tempo.application.model.recurrenceException.RecurrenceException;
+import com.tempo.application.model.worktimeSeries.WorktimeSeries;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Index des périodes d'exception d'une série : plages de jours epoch [début, fin]
+ * triées et fusionnées. À construire une fois par série et par requête, puis
+ * interroger en O(log n) par occurrence au lieu de parcourir toutes les exceptions.
+ *
+ * Comme dans les stats, seule la date compte : une occurrence est exclue si elle
+ * tombe un jour compris entre le jour de début et le jour de fin de la pause.
+ */
+public final class ExceptionIntervals {
+
+    private static final ExceptionIntervals EMPTY = new ExceptionIntervals(new long[0], new long[0], 0);
+
+    private final long[] starts;
+    private final long[] ends;
+    private final int size;
+
+    private ExceptionIntervals(long[] starts, long[] ends, int size) {
+        this.starts = starts;
+        this.ends = ends;
+        this.size = size;
+    }
+
+    public static ExceptionIntervals empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Construit l'index à partir des exceptions d'une série
+     * @param exceptions les exceptions (peuvent se chevaucher, dans n'importe quel ordre)
+     * @return l'index, vide si exceptions est null ou vide
+     */
+    public static ExceptionIntervals of(Collection<RecurrenceException> exceptions) {
+        if (exceptions == null || exceptions.isEmpty()) {
+            return EMPTY;
+        }
+        long[] packed = new long[exceptions.size() * 2];
+        int count = 0;
+        for (RecurrenceException exception : exceptions) {
+            if (exception.getPauseStart() == null || exception.getPauseEnd() == null) {
+                continue;
+            }
+            packed[count++] = exception.getPauseStart().toLocalDate().toEpochDay();
+            packed[count++] = exception.getPauseEnd().toLocalDate().toEpochDay();
+        }
+        return fromRanges(packed, count / 2);
+    }
+
+    /**
+     * Jours exclus des statistiques et de l'export : toutes les exceptions liées à la série
+     * (pauses DAY et annulations WORKTIME_SERIES), aucune si la série ignore les exceptions.
+     * Même règle que la colonne cancelled de series_occurrence.
+     * @param series la série, exceptions chargées
+     * @return l'index des jours exclus
+     */
+    public static ExceptionIntervals excludedDaysOf(WorktimeSeries series) {
+        if (Boolean.TRUE.equals(series.getIgnoreExceptions())) {
+            return EMPTY;
+        }
+        return of(series.getExceptions());
+    }
+
+    /**
+     * Jours où la série apparaît annulée dans le planning jour par jour : uniquement ses
+     * annulations WORKTIME_SERIES, au jour où elles commencent
+     * @param series la série, exceptions chargées
+     * @return l'index des jours annulés
+     */
+    public static ExceptionIntervals cancelledDaysOf(WorktimeSeries series) {
+        if (series.getExceptions() == null || series.getExceptions().isEmpty()) {
+            return EMPTY;
+        }
+        long[] packed = new long[series.getExceptions().size() * 2];
+        int count = 0;
+        for (RecurrenceException exception : series.getExceptions()) {
+            if (exception.getExceptionType() != ExceptionType.WORKTIME_SERIES
+                    || !series.getId().equals(exception.getTargetSeriesId())
+                    || exception.getPauseStart() == null) {
+                continue;
+            }
+            long day = exception.getPauseStart().toLocalDate().toEpochDay();
+            packed[count++] = day;
+            packed[count++] = day;
+        }
+        return fromRanges(packed, count / 2);
+    }
+
+    /**
+     * @param packed paires {début0, fin0, début1, fin1, ...} en jours epoch inclus
+     * @param rangeCount nombre de paires à lire
+     */
+    static ExceptionIntervals fromRanges(long[] packed, int rangeCount) {
+        if (rangeCount == 0) {
+            return EMPTY;
+        }
+        // Tri des plages par début (indices triés pour garder les paires ensemble)
+        Integer[] order = new Integer[rangeCount];
+        for (int i = 0; i < rangeCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(packed[a * 2], packed[b * 2]));
+
+        long[] starts = new long[rangeCount];
+        long[] ends = new long[rangeCount];
+        int size = 0;
+        for (Integer index : order) {
+            long start = packed[index * 2];
+            long end = packed[index * 2 + 1];
+            if (end < start) {
+                continue;
+            }
+            // Fusion des plages qui se chevauchent ou se touchent
+            if (size > 0 && start <= ends[size - 1] + 1) {
+                ends[size - 1] = Math.max(ends[size - 1], end);
+            } else {
+                starts[size] = start;
+                ends[size] = end;
+                size++;
+            }
+        }
+        return new ExceptionIntervals(starts, ends, size);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Nombre de plages après fusion
+     */
+    public int size() {
+        return size;
+    }
+
+    public long getStart(int index) {
+        return starts[index];
+    }
+
+    public long getEnd(int index) {
+        return ends[index];
+    }
+
+    /**
+     * @return true si le jour epoch est couvert par une exception
+     */
+    public boolean contains(long epochDay) {
+        int index = lastStartingAtOrBefore(epochDay);
+        return index >= 0 && epochDay <= ends[index];
+    }
+
+    /**
+     * Index de la première plage dont la fin est >= epochDay (size si aucune)
+     */
+    public int firstEndingAtOrAfter(long epochDay) {
+        int index = lastStartingAtOrBefore(epochDay);
+        if (index >= 0 && ends[index] >= epochDay) {
+            return index;
+        }
+        return index + 1;
+    }
+
+    private int lastStartingAtOrBefore(long epochDay) {
+        int position = Arrays.binarySearch(starts, 0, size, epochDay);
+        return position >= 0 ? position : -position - 2;
+    }
+}
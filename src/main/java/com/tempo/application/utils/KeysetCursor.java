@@ -0,0 +1,47 @@
+package com.tempo.application.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Curseur de pagination keyset : position (date, id) du dernier élément renvoyé,
+ * encodée en base64 URL pour rester opaque côté client
+ */
+public final class KeysetCursor {
+
+    private final LocalDateTime position;
+    private final long id;
+
+    private KeysetCursor(LocalDateTime position, long id) {
+        this.position = position;
+        this.id = id;
+    }
+
+    public static String encode(LocalDateTime position, long id) {
+        String raw = position + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException si le curseur n'a pas été produit par encode
+     */
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public LocalDateTime getPosition() {
+        return position;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,69 @@
+package com.tempo.application.utils;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Curseur des règles hebdomadaires simples (voir {@link CompiledRecurrence#isSimpleWeekly()}) :
+ * les occurrences se déduisent du masque de jours, en sautant directement d'un jour
+ * du masque au suivant par rotation de bits.
+ */
+final class MaskOccurrenceCursor extends OccurrenceCursor {
+
+    private final int dayMask;
+    private final long firstDay;
+    private final long lastDay;
+    private long next;
+
+    MaskOccurrenceCursor(int dayMask, long firstDay, long lastDay) {
+        this.dayMask = dayMask & 0x7F;
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+        this.next = seek(firstDay);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next <= lastDay;
+    }
+
+    @Override
+    public long nextEpochDay() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        long current = next;
+        next = seek(current + 1);
+        return current;
+    }
+
+    /**
+     * Premier jour (epoch) de la fenêtre parcourue
+     */
+    long getFirstDay() {
+        return firstDay;
+    }
+
+    /**
+     * Dernier jour (epoch, inclus) de la fenêtre parcourue
+     */
+    long getLastDay() {
+        return lastDay;
+    }
+
+    int getDayMask() {
+        return dayMask;
+    }
+
+    /**
+     * Premier jour >= day dont le jour de la semaine est dans le masque
+     */
+    private long seek(long day) {
+        if (dayMask == 0 || day > lastDay) {
+            return lastDay + 1;
+        }
+        int index = RecurrenceUtils.dayIndex(day);
+        // Rotation du masque pour que le bit 0 corresponde au jour 'day'
+        int rotated = ((dayMask >>> index) | (dayMask << (7 - index))) & 0x7F;
+        return day + Integer.numberOfTrailingZeros(rotated);
+    }
+}
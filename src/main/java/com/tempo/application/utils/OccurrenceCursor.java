@@ -0,0 +1,29 @@
+package com.tempo.application.utils;
+
+/**
+ * Parcours paresseux des occurrences d'une série, sous forme de jours epoch (long).
+ * Aucune allocation par occurrence : le curseur saute directement d'une occurrence
+ * à la suivante au lieu de tester chaque jour du calendrier.
+ * L'appelant peut interrompre le parcours à tout moment.
+ *
+ * Obtenu via {@link RecurrenceUtils#occurrences}.
+ */
+public abstract class OccurrenceCursor {
+
+    private static final OccurrenceCursor EMPTY = new MaskOccurrenceCursor(0, 0, -1);
+
+    OccurrenceCursor() {
+    }
+
+    static OccurrenceCursor empty() {
+        return EMPTY;
+    }
+
+    public abstract boolean hasNext();
+
+    /**
+     * @return le jour epoch de la prochaine occurrence
+     * @throws java.util.NoSuchElementException s'il n'y a plus d'occurrence
+     */
+    public abstract long nextEpochDay();
+}
@@ -1,15 +1,14 @@
 package com.tempo.application.utils;
 
-import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class RecurrenceUtils {
     /**
-     * Génère les occurrences pour une règle de type FREQ=WEEKLY;BYDAY=MO,WE,FR
+     * Génère les occurrences d'une règle RFC5545 (voir {@link CompiledRecurrence} pour les parties gérées)
      * @param rrule exemple : "FREQ=WEEKLY;BYDAY=MO,WE,FR"
      * @param start date de début de la série
      * @param from borne de début de la période à générer
@@ -36,51 +35,192 @@ public class RecurrenceUtils {
             LocalDateTime from,
             LocalDateTime to,
             LocalDateTime anchorStartHour) {
+        return generateOccurrences(CompiledRecurrence.of(rrule), seriesStartDate, from, to, anchorStartHour);
+    }
+
+    /**
+     * Variante prenant une règle déjà compilée (voir {@link CompiledRecurrence#of(String)}),
+     * pour éviter de ré-analyser la chaîne RRULE à chaque appel.
+     */
+    public static List<LocalDateTime> generateOccurrences(
+            CompiledRecurrence recurrence,
+            LocalDateTime seriesStartDate,
+            LocalDateTime from,
+            LocalDateTime to,
+            LocalDateTime anchorStartHour) {
         List<LocalDateTime> occurrences = new ArrayList<>();
-        if (rrule == null || !rrule.startsWith("FREQ=WEEKLY")) {
-            // On ne gère que les règles hebdomadaires simples
-            return occurrences;
+        LocalDateTime anchor = anchorStartHour != null ? anchorStartHour : seriesStartDate;
+        LocalTime time = LocalTime.of(anchor.getHour(), anchor.getMinute());
+        OccurrenceCursor cursor = occurrences(recurrence, seriesStartDate, from, to);
+        while (cursor.hasNext()) {
+            occurrences.add(LocalDate.ofEpochDay(cursor.nextEpochDay()).atTime(time));
         }
-        // Extraire les jours de la semaine
-        Map<String, DayOfWeek> dayMap = new HashMap<>();
-        dayMap.put("MO", DayOfWeek.MONDAY);
-        dayMap.put("TU", DayOfWeek.TUESDAY);
-        dayMap.put("WE", DayOfWeek.WEDNESDAY);
-        dayMap.put("TH", DayOfWeek.THURSDAY);
-        dayMap.put("FR", DayOfWeek.FRIDAY);
-        dayMap.put("SA", DayOfWeek.SATURDAY);
-        dayMap.put("SU", DayOfWeek.SUNDAY);
+        return occurrences;
+    }
+
+    /**
+     * Indique si la série a une occurrence le jour donné
+     * @param recurrence la règle compilée
+     * @param seriesStartDate date de début de la série (DTSTART)
+     * @param date le jour à tester
+     */
+    public static boolean occursOn(CompiledRecurrence recurrence, LocalDateTime seriesStartDate, LocalDate date) {
+        long day = date.toEpochDay();
+        return occurrences(recurrence, seriesStartDate.toLocalDate().toEpochDay(), day, day).hasNext();
+    }
 
-        List<DayOfWeek> daysOfWeek = new ArrayList<>();
-        String[] parts = rrule.split(";");
-        for (String part : parts) {
-            if (part.startsWith("BYDAY=")) {
-                String[] days = part.substring(6).split(",");
-                for (String d : days) {
-                    if (dayMap.containsKey(d)) {
-                        daysOfWeek.add(dayMap.get(d));
-                    }
+    /**
+     * Compte les occurrences sans les matérialiser.
+     * Même bornes que {@link #generateOccurrences(CompiledRecurrence, LocalDateTime, LocalDateTime, LocalDateTime, LocalDateTime)}.
+     * Pour les règles hebdomadaires simples le calcul est en O(1) : semaines complètes × nombre
+     * de jours du masque + reste de la semaine partielle. Les autres règles sont parcourues
+     * période par période via le curseur.
+     *
+     * @return le nombre d'occurrences entre max(seriesStartDate, from) et to
+     */
+    public static long countOccurrences(
+            CompiledRecurrence recurrence,
+            LocalDateTime seriesStartDate,
+            LocalDateTime from,
+            LocalDateTime to) {
+        return countOccurrences(recurrence, seriesStartDate, from, to, null);
+    }
+
+    /**
+     * Variante excluant les jours couverts par des périodes d'exception.
+     *
+     * @param excluded index des jours d'exception de la série ; null si aucune exclusion
+     */
+    public static long countOccurrences(
+            CompiledRecurrence recurrence,
+            LocalDateTime seriesStartDate,
+            LocalDateTime from,
+            LocalDateTime to,
+            ExceptionIntervals excluded) {
+        return countOccurrences(occurrences(recurrence, seriesStartDate, from, to), excluded);
+    }
+
+    /**
+     * Variante en jours epoch : occurrences de la série commençant le jour startDay,
+     * comprises dans [fromDay, toDay] (bornes incluses), hors jours exclus.
+     *
+     * @param excluded index des jours d'exception de la série ; null si aucune exclusion
+     */
+    public static long countOccurrences(
+            CompiledRecurrence recurrence,
+            long startDay,
+            long fromDay,
+            long toDay,
+            ExceptionIntervals excluded) {
+        return countOccurrences(occurrences(recurrence, startDay, fromDay, toDay), excluded);
+    }
+
+    private static long countOccurrences(OccurrenceCursor cursor, ExceptionIntervals excluded) {
+        if (!(cursor instanceof MaskOccurrenceCursor weekly)) {
+            long count = 0;
+            while (cursor.hasNext()) {
+                long day = cursor.nextEpochDay();
+                if (excluded == null || !excluded.contains(day)) {
+                    count++;
                 }
             }
+            return count;
         }
-        if (daysOfWeek.isEmpty()) {
-            // Si aucun jour n'est précisé, on ne génère rien
-            return occurrences;
+        if (!weekly.hasNext()) {
+            return 0;
         }
-        // Générer les occurrences
-        LocalDateTime current = seriesStartDate.isBefore(from) ? from : seriesStartDate;
-        LocalDateTime anchor = anchorStartHour != null ? anchorStartHour : seriesStartDate;
-        // On commence à la première semaine qui intersecte la période
-        while (!current.isAfter(to)) {
-            if (!current.isBefore(seriesStartDate) && daysOfWeek.contains(current.getDayOfWeek())) {
-                occurrences.add(current
-                        .withHour(anchor.getHour())
-                        .withMinute(anchor.getMinute())
-                        .withSecond(0)
-                        .withNano(0));
+        int dayMask = weekly.getDayMask();
+        long firstDay = weekly.getFirstDay();
+        long lastDay = weekly.getLastDay();
+        long count = countDays(dayMask, firstDay, lastDay);
+        if (excluded != null) {
+            // Seules les plages qui recoupent [firstDay, lastDay] sont visitées
+            for (int i = excluded.firstEndingAtOrAfter(firstDay); i < excluded.size(); i++) {
+                if (excluded.getStart(i) > lastDay) {
+                    break;
+                }
+                long start = Math.max(excluded.getStart(i), firstDay);
+                long end = Math.min(excluded.getEnd(i), lastDay);
+                count -= countDays(dayMask, start, end);
             }
-            current = current.plusDays(1);
         }
-        return occurrences;
+        return count;
+    }
+
+    /**
+     * Parcours paresseux des occurrences (jours epoch), sans construire de liste.
+     * Mêmes bornes que {@link #generateOccurrences(CompiledRecurrence, LocalDateTime, LocalDateTime, LocalDateTime, LocalDateTime)} :
+     * le parcours démarre à max(seriesStartDate, from) et le dernier jour n'est inclus
+     * que si son heure de parcours ne dépasse pas 'to'.
+     *
+     * @return un curseur positionné sur la première occurrence
+     */
+    public static OccurrenceCursor occurrences(
+            CompiledRecurrence recurrence,
+            LocalDateTime seriesStartDate,
+            LocalDateTime from,
+            LocalDateTime to) {
+        LocalDateTime current = seriesStartDate.isBefore(from) ? from : seriesStartDate;
+        if (current.isAfter(to)) {
+            return OccurrenceCursor.empty();
+        }
+        long firstDay = current.toLocalDate().toEpochDay();
+        long lastDay = to.toLocalDate().toEpochDay();
+        if (to.toLocalTime().isBefore(current.toLocalTime())) {
+            lastDay--;
+        }
+        return occurrences(recurrence, seriesStartDate.toLocalDate().toEpochDay(), firstDay, lastDay);
+    }
+
+    /**
+     * Variante en jours epoch : occurrences de la série commençant le jour startDay,
+     * comprises dans [fromDay, toDay] (bornes incluses).
+     * Le curseur se positionne directement sur la première occurrence >= fromDay,
+     * sans parcourir les jours depuis le début de la série.
+     */
+    public static OccurrenceCursor occurrences(
+            CompiledRecurrence recurrence,
+            long startDay,
+            long fromDay,
+            long toDay) {
+        if (recurrence.getFrequency() == null) {
+            return OccurrenceCursor.empty();
+        }
+        long firstDay = Math.max(fromDay, startDay);
+        long lastDay = Math.min(toDay, recurrence.getUntilDay());
+        if (firstDay > lastDay) {
+            return OccurrenceCursor.empty();
+        }
+        if (recurrence.isSimpleWeekly()) {
+            return new MaskOccurrenceCursor(recurrence.effectiveWeeklyMask(startDay), firstDay, lastDay);
+        }
+        return new RuleOccurrenceCursor(recurrence, startDay, firstDay, lastDay);
+    }
+
+    /**
+     * Nombre de jours de [firstEpochDay, lastEpochDay] dont le jour de la semaine est dans le masque
+     */
+    public static long countDays(int dayMask, long firstEpochDay, long lastEpochDay) {
+        if (lastEpochDay < firstEpochDay) {
+            return 0;
+        }
+        long days = lastEpochDay - firstEpochDay + 1;
+        long count = (days / 7) * Integer.bitCount(dayMask);
+        int remainder = (int) (days % 7);
+        if (remainder > 0) {
+            int shift = dayIndex(firstEpochDay);
+            int remainderMask = ((1 << remainder) - 1) << shift;
+            remainderMask = (remainderMask | (remainderMask >>> 7)) & 0x7F;
+            count += Integer.bitCount(dayMask & remainderMask);
+        }
+        return count;
+    }
+
+    /**
+     * Index du jour de la semaine (0 = lundi ... 6 = dimanche) d'un jour epoch, sans allocation
+     */
+    public static int dayIndex(long epochDay) {
+        // 1970-01-01 était un jeudi (index 3)
+        return (int) Math.floorMod(epochDay + 3, 7L);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,302 @@
+package com.tempo.application.utils;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Curseur générique RFC5545 : les occurrences sont produites période par période
+ * (jour, semaine, mois ou année selon FREQ), en sautant les périodes hors INTERVAL.
+ *
+ * Sans COUNT, le parcours démarre directement à la période contenant 'from'
+ * (aucun parcours depuis la date de début). Avec COUNT, les périodes antérieures
+ * doivent être énumérées pour savoir combien d'occurrences ont déjà été consommées,
+ * ce qui reste borné par COUNT.
+ */
+final class RuleOccurrenceCursor extends OccurrenceCursor {
+
+    private final CompiledRecurrence rule;
+    private final long startDay;
+    private final LocalDate start;
+    private final long fromDay;
+    private final long toDay;
+
+    private long period;
+    private long[] buffer = new long[8];
+    private int bufferSize;
+    private int bufferPosition;
+    private int emitted;
+    private long next;
+    private boolean exhausted;
+
+    RuleOccurrenceCursor(CompiledRecurrence rule, long startDay, long fromDay, long toDay) {
+        this.rule = rule;
+        this.startDay = startDay;
+        this.start = LocalDate.ofEpochDay(startDay);
+        this.fromDay = Math.max(fromDay, startDay);
+        this.toDay = toDay;
+        if (rule.getCount() > 0) {
+            this.period = 0;
+        } else {
+            // Se placer directement sur la période (alignée sur INTERVAL) qui contient 'from'
+            long elapsed = Math.max(0, periodsUntil(this.fromDay));
+            this.period = elapsed - (elapsed % rule.getInterval());
+        }
+        advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !exhausted;
+    }
+
+    @Override
+    public long nextEpochDay() {
+        if (exhausted) {
+            throw new NoSuchElementException();
+        }
+        long current = next;
+        advance();
+        return current;
+    }
+
+    private void advance() {
+        while (true) {
+            if (bufferPosition < bufferSize) {
+                long day = buffer[bufferPosition++];
+                if (day < startDay) {
+                    continue;
+                }
+                if (day > toDay) {
+                    exhausted = true;
+                    return;
+                }
+                emitted++;
+                if (rule.getCount() > 0 && emitted > rule.getCount()) {
+                    exhausted = true;
+                    return;
+                }
+                if (day < fromDay) {
+                    continue;
+                }
+                next = day;
+                return;
+            }
+            if (periodStartDay(period) > toDay) {
+                exhausted = true;
+                return;
+            }
+            bufferSize = 0;
+            bufferPosition = 0;
+            expand(period);
+            period += rule.getInterval();
+        }
+    }
+
+    /**
+     * Nombre de périodes entières entre la période de début et celle contenant 'day'
+     */
+    private long periodsUntil(long day) {
+        switch (rule.getFrequency()) {
+            case DAILY:
+                return day - startDay;
+            case WEEKLY:
+                return (weekStart(day) - weekStart(startDay)) / 7;
+            case MONTHLY: {
+                LocalDate date = LocalDate.ofEpochDay(day);
+                return (date.getYear() - start.getYear()) * 12L + (date.getMonthValue() - start.getMonthValue());
+            }
+            default:
+                return LocalDate.ofEpochDay(day).getYear() - start.getYear();
+        }
+    }
+
+    private long periodStartDay(long index) {
+        switch (rule.getFrequency()) {
+            case DAILY:
+                return startDay + index;
+            case WEEKLY:
+                return weekStart(startDay) + 7 * index;
+            case MONTHLY:
+                return YearMonth.from(start).plusMonths(index).atDay(1).toEpochDay();
+            default:
+                return LocalDate.of(start.getYear(), 1, 1).plusYears(index).toEpochDay();
+        }
+    }
+
+    private static long weekStart(long day) {
+        return day - RecurrenceUtils.dayIndex(day);
+    }
+
+    /**
+     * Remplit le tampon avec les jours candidats (triés, sans doublon) de la période
+     */
+    private void expand(long index) {
+        switch (rule.getFrequency()) {
+            case DAILY: {
+                long day = startDay + index;
+                LocalDate date = LocalDate.ofEpochDay(day);
+                if (rule.includesMonth(date.getMonthValue())
+                        && matchesMonthDay(date.getDayOfMonth(), date.lengthOfMonth())
+                        && (!rule.hasByDay() || (rule.getDayMask() & (1 << RecurrenceUtils.dayIndex(day))) != 0)) {
+                    add(day);
+                }
+                break;
+            }
+            case WEEKLY: {
+                long weekStart = weekStart(startDay) + 7 * index;
+                int mask = rule.effectiveWeeklyMask(startDay);
+                for (int i = 0; i < 7; i++) {
+                    if ((mask & (1 << i)) != 0) {
+                        long day = weekStart + i;
+                        if (!rule.hasMonthFilter() || rule.includesMonth(LocalDate.ofEpochDay(day).getMonthValue())) {
+                            add(day);
+                        }
+                    }
+                }
+                break;
+            }
+            case MONTHLY: {
+                YearMonth month = YearMonth.from(start).plusMonths(index);
+                if (rule.includesMonth(month.getMonthValue())) {
+                    expandMonth(month);
+                }
+                break;
+            }
+            default:
+                expandYear(start.getYear() + (int) index);
+                break;
+        }
+        finishPeriod();
+    }
+
+    private void expandYear(int year) {
+        if (rule.hasMonthFilter() || rule.getByMonthDays().length > 0) {
+            // BYMONTH et/ou BYMONTHDAY : expansion mois par mois (ordinaux BYDAY relatifs au mois)
+            for (int month = 1; month <= 12; month++) {
+                if (rule.includesMonth(month)) {
+                    expandMonth(YearMonth.of(year, month));
+                }
+            }
+        } else if (rule.hasByDay()) {
+            // BYDAY sans BYMONTH : ordinaux relatifs à l'année
+            LocalDate first = LocalDate.of(year, 1, 1);
+            expandWeekdays(first.toEpochDay(), first.lengthOfYear());
+        } else {
+            // Même jour et même mois que la date de début
+            YearMonth month = YearMonth.of(year, start.getMonthValue());
+            if (start.getDayOfMonth() <= month.lengthOfMonth()) {
+                add(month.atDay(start.getDayOfMonth()).toEpochDay());
+            }
+        }
+    }
+
+    private void expandMonth(YearMonth month) {
+        long first = month.atDay(1).toEpochDay();
+        int length = month.lengthOfMonth();
+        if (rule.getByMonthDays().length > 0) {
+            for (int monthDay : rule.getByMonthDays()) {
+                int dayOfMonth = monthDay > 0 ? monthDay : length + monthDay + 1;
+                if (dayOfMonth < 1 || dayOfMonth > length) {
+                    continue;
+                }
+                long day = first + dayOfMonth - 1;
+                // BYDAY combiné à BYMONTHDAY : simple filtre sur le jour de la semaine
+                if (!rule.hasByDay() || (rule.getDayMask() & (1 << RecurrenceUtils.dayIndex(day))) != 0) {
+                    add(day);
+                }
+            }
+        } else if (rule.hasByDay()) {
+            expandWeekdays(first, length);
+        } else if (start.getDayOfMonth() <= length) {
+            add(first + start.getDayOfMonth() - 1);
+        }
+    }
+
+    /**
+     * Jours BYDAY de la plage [first, first + length[, avec ordinaux (1MO, -1FR) relatifs à la plage
+     */
+    private void expandWeekdays(long first, int length) {
+        long last = first + length - 1;
+        int[] indexes = rule.getByDayIndexes();
+        int[] ordinals = rule.getByDayOrdinals();
+        for (int i = 0; i < indexes.length; i++) {
+            long firstMatch = first + Math.floorMod(indexes[i] - RecurrenceUtils.dayIndex(first), 7);
+            if (ordinals[i] == 0) {
+                for (long day = firstMatch; day <= last; day += 7) {
+                    add(day);
+                }
+            } else if (ordinals[i] > 0) {
+                long day = firstMatch + 7L * (ordinals[i] - 1);
+                if (day <= last) {
+                    add(day);
+                }
+            } else {
+                long lastMatch = last - Math.floorMod(RecurrenceUtils.dayIndex(last) - indexes[i], 7);
+                long day = lastMatch + 7L * (ordinals[i] + 1);
+                if (day >= first) {
+                    add(day);
+                }
+            }
+        }
+    }
+
+    private boolean matchesMonthDay(int dayOfMonth, int length) {
+        if (rule.getByMonthDays().length == 0) {
+            return true;
+        }
+        for (int monthDay : rule.getByMonthDays()) {
+            if (monthDay == dayOfMonth || length + monthDay + 1 == dayOfMonth) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tri, dédoublonnage puis application de BYSETPOS sur les candidats de la période
+     */
+    private void finishPeriod() {
+        Arrays.sort(buffer, 0, bufferSize);
+        int size = 0;
+        for (int i = 0; i < bufferSize; i++) {
+            if (size == 0 || buffer[size - 1] != buffer[i]) {
+                buffer[size++] = buffer[i];
+            }
+        }
+        bufferSize = size;
+
+        int[] setPositions = rule.getBySetPos();
+        if (setPositions.length == 0 || bufferSize == 0) {
+            return;
+        }
+        long[] selected = new long[setPositions.length];
+        int selectedSize = 0;
+        for (int position : setPositions) {
+            int index = position > 0 ? position - 1 : bufferSize + position;
+            if (index >= 0 && index < bufferSize) {
+                selected[selectedSize++] = buffer[index];
+            }
+        }
+        bufferSize = 0;
+        for (int i = 0; i < selectedSize; i++) {
+            add(selected[i]);
+        }
+        Arrays.sort(buffer, 0, bufferSize);
+        size = 0;
+        for (int i = 0; i < bufferSize; i++) {
+            if (size == 0 || buffer[size - 1] != buffer[i]) {
+                buffer[size++] = buffer[i];
+            }
+        }
+        bufferSize = size;
+    }
+
+    private void add(long day) {
+        if (bufferSize == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[bufferSize++] = day;
+    }
+}
@@ -0,0 +1,3 @@
+-- Index composite pour la recherche des séries actives d'un utilisateur sur une période
+-- (user_id = ? AND start_date < ? AND (end_date IS NULL OR end_date >= ?))
+CREATE INDEX IF NOT EXISTS idx_worktime_series_user_period ON public.worktime_series(user_id, start_date, end_date);
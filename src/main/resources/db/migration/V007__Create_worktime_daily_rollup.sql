@@ -0,0 +1,30 @@
+-- Agrégat journalier des worktimes terminés, par utilisateur et catégorie
+-- Maintenu par WorktimeService à chaque création / modification / suppression
+-- Un worktime est rattaché au jour de son heure de début, avec sa durée complète en minutes
+
+CREATE TABLE IF NOT EXISTS public.worktime_daily_rollup (
+    id BIGSERIAL PRIMARY KEY,
+    user_id INTEGER NOT NULL,
+    day DATE NOT NULL,
+    category_id INTEGER,
+    minutes BIGINT NOT NULL DEFAULT 0,
+    worktime_count INTEGER NOT NULL DEFAULT 0,
+    CONSTRAINT fk_worktime_daily_rollup_user FOREIGN KEY (user_id) REFERENCES public."user"(id) ON DELETE CASCADE,
+    -- La suppression d'une catégorie supprime ses worktimes : l'agrégat suit
+    CONSTRAINT fk_worktime_daily_rollup_category FOREIGN KEY (category_id) REFERENCES public.category(id) ON DELETE CASCADE
+);
+
+-- Une ligne par (utilisateur, jour, catégorie) ; les worktimes sans catégorie sont regroupés sous 0
+CREATE UNIQUE INDEX IF NOT EXISTS uk_worktime_daily_rollup_user_day_category
+    ON public.worktime_daily_rollup(user_id, day, COALESCE(category_id, 0));
+
+-- Remplissage initial à partir des worktimes existants
+INSERT INTO public.worktime_daily_rollup (user_id, day, category_id, minutes, worktime_count)
+SELECT w.user_id,
+       DATE(w.start_hour),
+       w.category_id,
+       SUM(FLOOR(EXTRACT(EPOCH FROM (w.end_hour - w.start_hour)) / 60)),
+       COUNT(*)
+FROM public.worktime w
+WHERE w.end_hour IS NOT NULL
+GROUP BY w.user_id, DATE(w.start_hour), w.category_id;
@@ -0,0 +1,22 @@
+-- Occurrences matérialisées des séries récurrentes, sur un horizon glissant
+-- Maintenues par SeriesOccurrenceService (création / modification de série, exceptions)
+-- et prolongées périodiquement au-delà de l'horizon
+
+CREATE TABLE IF NOT EXISTS public.series_occurrence (
+    series_id BIGINT NOT NULL,
+    user_id INTEGER NOT NULL,
+    day DATE NOT NULL,
+    start_hour TIMESTAMP NOT NULL,
+    minutes INTEGER NOT NULL,
+    cancelled BOOLEAN NOT NULL DEFAULT false,
+    PRIMARY KEY (series_id, day),
+    CONSTRAINT fk_series_occurrence_series FOREIGN KEY (series_id) REFERENCES public.worktime_series(id) ON DELETE CASCADE,
+    CONSTRAINT fk_series_occurrence_user FOREIGN KEY (user_id) REFERENCES public."user"(id) ON DELETE CASCADE
+);
+
+-- Lecture par utilisateur et plage de jours (planning, statistiques)
+CREATE INDEX IF NOT EXISTS idx_series_occurrence_user_day ON public.series_occurrence(user_id, day);
+
+-- Dernier jour matérialisé de chaque série (NULL = à matérialiser)
+-- Les séries existantes sont matérialisées par la tâche planifiée au démarrage
+ALTER TABLE public.worktime_series ADD COLUMN IF NOT EXISTS occurrences_materialized_until DATE;
@@ -0,0 +1,6 @@
+-- Index de la pagination keyset des listes de l'utilisateur
+-- Worktimes : ORDER BY start_hour DESC, id DESC (parcours inverse de l'index)
+CREATE INDEX IF NOT EXISTS idx_worktime_user_start_id ON public.worktime(user_id, start_hour, id);
+
+-- Séries : ORDER BY start_date DESC, id DESC
+CREATE INDEX IF NOT EXISTS idx_worktime_series_user_start_id ON public.worktime_series(user_id, start_date, id);
@@ -0,0 +1,29 @@
+-- Index composites alignés sur les requêtes réelles
+-- (user_id = ? AND start_hour < ? AND end_hour > ?, chronos en cours, séries actives, exceptions)
+
+-- Worktimes : index couvrant pour les requêtes de planning / statistiques / export
+-- et la pagination keyset (remplace l'index de V009, même clé + colonnes incluses)
+DROP INDEX IF EXISTS public.idx_worktime_user_start_id;
+CREATE INDEX IF NOT EXISTS idx_worktime_user_start_covering ON public.worktime(user_id, start_hour, id)
+    INCLUDE (end_hour, category_id);
+
+-- Redondant : préfixe de l'index couvrant
+DROP INDEX IF EXISTS public.idx_worktime_user_id;
+
+-- Chronos en cours (end_hour IS NULL) : index partiel, très petit
+CREATE INDEX IF NOT EXISTS idx_worktime_open_chrono ON public.worktime(user_id) WHERE end_hour IS NULL;
+
+-- Séries : (user_id, start_date, end_date) existe déjà (V006), l'index mono-colonne est redondant
+DROP INDEX IF EXISTS public.idx_worktime_series_user_id;
+
+-- Chargement des exceptions d'une série (LEFT JOIN FETCH s.exceptions) :
+-- la clé primaire (exception_id, series_id) ne sert pas la jointure par series_id
+CREATE INDEX IF NOT EXISTS idx_exception_series_series ON public.recurrence_exception_series(series_id, exception_id);
+
+-- Exceptions d'une série pour un jour (target_series_id = ? AND pause_start dans [jour, jour + 1[)
+DROP INDEX IF EXISTS public.idx_recurrence_exception_target_series;
+CREATE INDEX IF NOT EXISTS idx_recurrence_exception_target_start ON public.recurrence_exception(target_series_id, pause_start);
+
+-- Statistiques sur les occurrences matérialisées : seules les occurrences non annulées sont lues
+CREATE INDEX IF NOT EXISTS idx_series_occurrence_user_day_active ON public.series_occurrence(user_id, day)
+    INCLUDE (series_id, minutes) WHERE cancelled = false;
@@ -0,0 +1,95 @@
+-- Partitionnement mensuel de la table worktime sur start_hour
+-- Les requêtes par plage de start_hour ne lisent que les partitions concernées ;
+-- une partition ancienne peut être archivée avec
+--   ALTER TABLE public.worktime DETACH PARTITION public.worktime_AAAA_MM;
+-- Les partitions futures sont créées par WorktimePartitionService (tâche planifiée).
+
+-- 1. Mise de côté de la table existante (la séquence des ids est conservée)
+ALTER TABLE public.worktime RENAME TO worktime_legacy;
+ALTER INDEX public.worktime_pkey RENAME TO worktime_legacy_pkey;
+ALTER SEQUENCE public.worktime_id_seq OWNED BY NONE;
+
+-- 2. Table partitionnée : la clé primaire doit contenir la clé de partitionnement
+CREATE TABLE public.worktime (
+    id INTEGER NOT NULL DEFAULT nextval('public.worktime_id_seq'),
+    start_hour TIMESTAMP NOT NULL,
+    end_hour TIMESTAMP,
+    user_id INTEGER NOT NULL,
+    category_id INTEGER,
+    CONSTRAINT worktime_pkey PRIMARY KEY (id, start_hour),
+    CONSTRAINT fk_worktime_user FOREIGN KEY (user_id) REFERENCES public."user"(id) ON DELETE CASCADE,
+    CONSTRAINT fk_worktime_category FOREIGN KEY (category_id) REFERENCES public.category(id) ON DELETE SET NULL
+) PARTITION BY RANGE (start_hour);
+
+-- Partition par défaut : worktimes hors des mois déjà créés
+CREATE TABLE public.worktime_default PARTITION OF public.worktime DEFAULT;
+
+-- 3. Création d'une partition mensuelle (idempotente). Les lignes du mois déjà présentes
+-- dans la partition par défaut y sont déplacées avant l'attachement.
+CREATE OR REPLACE FUNCTION public.create_worktime_partition(month_start DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    partition_name TEXT := 'worktime_' || TO_CHAR(month_start, 'YYYY_MM');
+    month_end DATE := CAST(month_start + INTERVAL '1 month' AS DATE);
+BEGIN
+    IF to_regclass('public.' || partition_name) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+    EXECUTE format('CREATE TABLE public.%I (LIKE public.worktime INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM public.worktime_default WHERE start_hour >= %L AND start_hour < %L RETURNING *) '
+                   'INSERT INTO public.%I SELECT * FROM moved', month_start, month_end, partition_name);
+    EXECUTE format('ALTER TABLE public.worktime ATTACH PARTITION public.%I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, month_start, month_end);
+    RETURN true;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partitions du mois courant jusqu'à months_ahead mois plus tard ; retourne le nombre de partitions créées
+CREATE OR REPLACE FUNCTION public.ensure_worktime_partitions(months_ahead INTEGER) RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE;
+    created INTEGER := 0;
+BEGIN
+    FOR month_start IN
+        SELECT CAST(m AS DATE) FROM generate_series(
+            date_trunc('month', CAST(now() AS TIMESTAMP)),
+            date_trunc('month', CAST(now() AS TIMESTAMP)) + make_interval(months => months_ahead),
+            INTERVAL '1 month') AS m
+    LOOP
+        IF public.create_worktime_partition(month_start) THEN
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 4. Partitions de l'historique existant et des 12 prochains mois
+DO $$
+DECLARE
+    month_start DATE;
+BEGIN
+    FOR month_start IN
+        SELECT CAST(m AS DATE) FROM generate_series(
+            date_trunc('month', COALESCE((SELECT MIN(start_hour) FROM public.worktime_legacy), CAST(now() AS TIMESTAMP))),
+            date_trunc('month', CAST(now() AS TIMESTAMP)),
+            INTERVAL '1 month') AS m
+    LOOP
+        PERFORM public.create_worktime_partition(month_start);
+    END LOOP;
+    PERFORM public.ensure_worktime_partitions(12);
+END
+$$;
+
+-- 5. Copie des données puis suppression de l'ancienne table
+INSERT INTO public.worktime (id, start_hour, end_hour, user_id, category_id)
+SELECT id, start_hour, end_hour, user_id, category_id FROM public.worktime_legacy;
+
+DROP TABLE public.worktime_legacy;
+ALTER SEQUENCE public.worktime_id_seq OWNED BY public.worktime.id;
+
+-- 6. Index (créés sur chaque partition, y compris les futures)
+CREATE INDEX IF NOT EXISTS idx_worktime_user_start_covering ON public.worktime(user_id, start_hour, id)
+    INCLUDE (end_hour, category_id);
+CREATE INDEX IF NOT EXISTS idx_worktime_open_chrono ON public.worktime(user_id) WHERE end_hour IS NULL;
+CREATE INDEX IF NOT EXISTS idx_worktime_category_id ON public.worktime(category_id);
+CREATE INDEX IF NOT EXISTS idx_worktime_start_hour ON public.worktime(start_hour);
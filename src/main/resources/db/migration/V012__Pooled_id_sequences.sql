@@ -0,0 +1,5 @@
+-- Allocation des identifiants par blocs de 50 (optimiseur pooled d'Hibernate) pour worktime et worktime_series :
+-- un appel à la séquence pour 50 insertions, insertions regroupées en batch JDBC.
+-- Chaque nextval renvoie la borne haute du bloc, les valeurs déjà attribuées restent en dessous.
+ALTER SEQUENCE public.worktime_id_seq INCREMENT BY 50;
+ALTER SEQUENCE public.worktime_series_id_seq INCREMENT BY 50;
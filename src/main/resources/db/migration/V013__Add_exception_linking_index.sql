@@ -0,0 +1,6 @@
+-- Séries d'un utilisateur concernées par une nouvelle pause :
+-- user_id = ? AND ignore_exceptions IS NOT TRUE AND start_date < ? AND (end_date IS NULL OR end_date > ?)
+-- Index partiel : les séries qui ignorent les exceptions n'y figurent pas
+CREATE INDEX IF NOT EXISTS idx_worktime_series_user_period_linkable
+    ON public.worktime_series(user_id, start_date, end_date)
+    WHERE ignore_exceptions IS NOT TRUE;
@@ -0,0 +1,28 @@
+-- Propriétaire des exceptions de récurrence : la liaison aux séries et la détection des doublons
+-- se limitent aux exceptions de l'utilisateur
+ALTER TABLE public.recurrence_exception ADD COLUMN IF NOT EXISTS user_id INTEGER;
+
+-- Annulations d'un jour : propriétaire de la série ciblée
+UPDATE public.recurrence_exception e
+SET user_id = s.user_id
+FROM public.worktime_series s
+WHERE e.user_id IS NULL
+  AND e.target_series_id = s.id;
+
+-- Pauses : propriétaire d'une des séries liées (les pauses sans série restent sans propriétaire)
+UPDATE public.recurrence_exception e
+SET user_id = owners.user_id
+FROM (
+    SELECT res.exception_id, MIN(s.user_id) AS user_id
+    FROM public.recurrence_exception_series res
+    JOIN public.worktime_series s ON s.id = res.series_id
+    GROUP BY res.exception_id
+) owners
+WHERE e.user_id IS NULL
+  AND owners.exception_id = e.id;
+
+ALTER TABLE public.recurrence_exception
+    ADD CONSTRAINT fk_recurrence_exception_user FOREIGN KEY (user_id) REFERENCES public."user"(id) ON DELETE CASCADE;
+
+-- Exceptions d'un utilisateur chevauchant une période (user_id = ? AND pause_start < ? AND pause_end > ?)
+CREATE INDEX IF NOT EXISTS idx_recurrence_exception_user_start ON public.recurrence_exception(user_id, pause_start, pause_end);
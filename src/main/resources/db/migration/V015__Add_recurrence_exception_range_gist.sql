@@ -0,0 +1,22 @@
+-- Période des exceptions sous forme de tsrange, indexée en GiST : les recherches de chevauchement
+-- (opérateur &&) restent logarithmiques quel que soit l'historique de pauses et d'annulations.
+-- btree_gist permet de combiner user_id / target_series_id (égalité) et la période dans le même index.
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- Bornes incluses : une exception d'une durée nulle reste un point de la période.
+-- GREATEST protège d'anciennes lignes dont la fin précède le début (tsrange refuserait la ligne).
+ALTER TABLE public.recurrence_exception
+    ADD COLUMN IF NOT EXISTS pause_range TSRANGE
+    GENERATED ALWAYS AS (tsrange(pause_start, GREATEST(pause_start, pause_end), '[]')) STORED;
+
+-- Pauses d'un utilisateur qui chevauchent une période (user_id = ? AND pause_range && ?)
+DROP INDEX IF EXISTS public.idx_recurrence_exception_user_start;
+CREATE INDEX IF NOT EXISTS idx_recurrence_exception_user_range
+    ON public.recurrence_exception USING GIST (user_id, pause_range);
+
+-- Annulations d'une série sur un jour (target_series_id = ? AND pause_range && ?),
+-- sert aussi la suppression en cascade sur target_series_id
+DROP INDEX IF EXISTS public.idx_recurrence_exception_target_start;
+CREATE INDEX IF NOT EXISTS idx_recurrence_exception_target_range
+    ON public.recurrence_exception USING GIST (target_series_id, pause_range)
+    WHERE target_series_id IS NOT NULL;
@@ -0,0 +1,6 @@
+-- Annulations d'une série sur un jour : recherche par jour de début
+-- (target_series_id = ? AND pause_start >= ? AND pause_start < ?), et non par chevauchement,
+-- pour qu'une annulation qui passe minuit ne soit pas aussi trouvée le lendemain.
+-- Le B-tree sert aussi la suppression en cascade sur target_series_id et remplace l'index GiST de V015.
+CREATE INDEX IF NOT EXISTS idx_recurrence_exception_target_start ON public.recurrence_exception(target_series_id, pause_start);
+DROP INDEX IF EXISTS public.idx_recurrence_exception_target_range;
@@ -0,0 +1,9 @@
+-- Jours annulés des occurrences matérialisées : mêmes règles que les statistiques historiques,
+-- une série qui ignore les exceptions n'a aucun jour exclu (ses propres annulations comprises).
+-- Les autres séries ne sont liées qu'à leurs pauses et à leurs propres annulations : inchangées.
+UPDATE public.series_occurrence o
+SET cancelled = false
+FROM public.worktime_series s
+WHERE s.id = o.series_id
+  AND s.ignore_exceptions IS TRUE
+  AND o.cancelled;
@@ -0,0 +1,37 @@
+-- Durée maximale (en minutes, arrondie au supérieur) des worktimes terminés de chaque utilisateur
+-- Sert de borne basse sur start_hour aux requêtes de chevauchement (start_hour < fin AND end_hour > début) :
+-- un worktime qui chevauche 'début' a commencé au plus max_minutes avant.
+-- La valeur ne fait que croître (une suppression ne la réduit pas) : la borne reste toujours valide.
+
+CREATE TABLE IF NOT EXISTS public.worktime_user_span (
+    user_id INTEGER PRIMARY KEY,
+    max_minutes BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT fk_worktime_user_span_user FOREIGN KEY (user_id) REFERENCES public."user"(id) ON DELETE CASCADE
+);
+
+-- Remplissage initial à partir des worktimes existants
+INSERT INTO public.worktime_user_span (user_id, max_minutes)
+SELECT w.user_id,
+       MAX(GREATEST(CAST(CEIL(EXTRACT(EPOCH FROM (w.end_hour - w.start_hour)) / 60) AS BIGINT), 0))
+FROM public.worktime w
+WHERE w.end_hour IS NOT NULL
+GROUP BY w.user_id
+ON CONFLICT (user_id) DO NOTHING;
+
+-- Maintenue par trigger : toutes les écritures sont couvertes (services, lots, scripts)
+CREATE OR REPLACE FUNCTION public.track_worktime_span() RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.end_hour IS NOT NULL THEN
+        INSERT INTO public.worktime_user_span (user_id, max_minutes)
+        VALUES (NEW.user_id, GREATEST(CAST(CEIL(EXTRACT(EPOCH FROM (NEW.end_hour - NEW.start_hour)) / 60) AS BIGINT), 0))
+        ON CONFLICT (user_id) DO UPDATE SET max_minutes = EXCLUDED.max_minutes
+        WHERE public.worktime_user_span.max_minutes < EXCLUDED.max_minutes;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Déclenché sur la table partitionnée : appliqué à toutes les partitions, y compris les futures
+CREATE TRIGGER trg_worktime_track_span
+    AFTER INSERT OR UPDATE OF start_hour, end_hour, user_id ON public.worktime
+    FOR EACH ROW EXECUTE FUNCTION public.track_worktime_span();
@@ -0,0 +1,31 @@
+-- Unicité de worktime.id sur toutes les partitions
+-- La clé primaire de la table partitionnée (V011) est (id, start_hour) : rien n'y empêche deux lignes
+-- de même id à des dates différentes, alors que l'entité Worktime est identifiée par id seul.
+-- Chaque id est donc aussi enregistré dans worktime_id_registry, dont la clé primaire est id.
+
+CREATE TABLE IF NOT EXISTS public.worktime_id_registry (
+    id INTEGER PRIMARY KEY
+);
+
+-- Remplissage initial ; échoue si des doublons existent déjà (à corriger avant la migration)
+INSERT INTO public.worktime_id_registry (id)
+SELECT id FROM public.worktime;
+
+-- Un UPDATE qui change start_hour de partition est exécuté comme DELETE puis INSERT :
+-- les déclencheurs AFTER DELETE et AFTER INSERT s'appliquent, la ligne du registre suit.
+CREATE OR REPLACE FUNCTION public.track_worktime_id() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO public.worktime_id_registry (id) VALUES (NEW.id);
+    ELSIF TG_OP = 'DELETE' THEN
+        DELETE FROM public.worktime_id_registry WHERE id = OLD.id;
+    ELSIF NEW.id <> OLD.id THEN
+        UPDATE public.worktime_id_registry SET id = NEW.id WHERE id = OLD.id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_worktime_track_id
+    AFTER INSERT OR DELETE OR UPDATE OF id ON public.worktime
+    FOR EACH ROW EXECUTE FUNCTION public.track_worktime_id();
@@ -0,0 +1,94 @@
+package com.tempo.application.repository;
+
+import com.tempo.application.model.user.User;
+import com.tempo.application.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Les lectures de worktimes par utilisateur et période, et la pagination keyset,
+ * doivent être servies par l'index couvrant idx_worktime_user_start_covering
+ * sans lecture de la table (Index Only Scan sur chaque partition).
+ */
+class WorktimeIndexPlanTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private LocalDateTime monthStart;
+
+    @BeforeEach
+    void createWorktimes() {
+        user = newUser();
+        User other = newUser();
+        // Mois courant : sa partition est créée par la migration
+        monthStart = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+        for (User owner : new User[] {user, other}) {
+            jdbcTemplate.update("INSERT INTO worktime (start_hour, end_hour, user_id) " +
+                    "SELECT CAST(? AS TIMESTAMP) + n * INTERVAL '5 minutes', " +
+                    "CAST(? AS TIMESTAMP) + n * INTERVAL '5 minutes' + INTERVAL '3 minutes', ? " +
+                    "FROM generate_series(0, 4999) AS n", monthStart, monthStart, owner.getId());
+        }
+        // Carte de visibilité à jour : condition des Index Only Scan
+        jdbcTemplate.execute("VACUUM ANALYZE worktime");
+    }
+
+    @Test
+    void periodQueryIsIndexOnly() {
+        String plan = explain("SELECT id, start_hour, end_hour, category_id FROM worktime " +
+                "WHERE user_id = " + user.getId() + " " +
+                "AND start_hour < TIMESTAMP '" + monthStart.plusDays(2) + "' " +
+                "AND end_hour > TIMESTAMP '" + monthStart.plusDays(1) + "'");
+        assertIndexOnly(plan);
+    }
+
+    @Test
+    void keysetPageIsIndexOnly() {
+        String plan = explain("SELECT id, start_hour, end_hour, category_id FROM worktime " +
+                "WHERE user_id = " + user.getId() + " " +
+                "AND (start_hour < TIMESTAMP '" + monthStart.plusDays(10) + "' " +
+                "OR (start_hour = TIMESTAMP '" + monthStart.plusDays(10) + "' AND id < 1000000)) " +
+                "ORDER BY start_hour DESC, id DESC LIMIT 20");
+        assertIndexOnly(plan);
+    }
+
+    private static void assertIndexOnly(String plan) {
+        assertThat(plan).contains("Index Only Scan");
+        assertThat(plan).doesNotContain("Seq Scan");
+        assertThat(plan).doesNotContainPattern("Heap Fetches: [1-9]");
+    }
+
+    /**
+     * Plan exécuté de la requête. Parcours séquentiels et bitmap désactivés sur la connexion :
+     * sur un jeu de test réduit le planificateur les préférerait, le test vérifie que l'index
+     * suffit à servir la requête sans lire la table.
+     */
+    private String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET enable_seqscan = off");
+                statement.execute("SET enable_bitmapscan = off");
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet result = statement.executeQuery("EXPLAIN (ANALYZE, COSTS OFF) " + sql)) {
+                    while (result.next()) {
+                        plan.append(result.getString(1)).append('\n');
+                    }
+                }
+                statement.execute("RESET enable_seqscan");
+                statement.execute("RESET enable_bitmapscan");
+                return plan.toString();
+            }
+        });
+    }
+}
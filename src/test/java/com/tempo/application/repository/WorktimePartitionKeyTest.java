@@ -0,0 +1,93 @@
+package com.tempo.application.repository;
+
+import com.tempo.application.model.user.User;
+import com.tempo.application.model.worktime.Worktime;
+import com.tempo.application.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Table worktime partitionnée sur start_hour : id reste unique sur toutes les partitions (V019)
+ * et les requêtes de chevauchement sont bornées des deux côtés sur start_hour (V018).
+ */
+class WorktimePartitionKeyTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WorktimeRepository worktimeRepository;
+
+    private User user;
+    private LocalDateTime monthStart;
+
+    @BeforeEach
+    void createUser() {
+        user = newUser();
+        // Mois courant et suivant : leurs partitions sont créées par la migration
+        monthStart = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+    }
+
+    @Test
+    void sameIdInAnotherPartitionIsRejected() {
+        int id = insert(monthStart.plusDays(2), monthStart.plusDays(2).plusHours(1));
+
+        assertThatThrownBy(() -> insertWithId(id, monthStart.plusMonths(1).plusDays(2)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void idFollowsTheRowAcrossPartitions() {
+        int id = insert(monthStart.plusDays(2), monthStart.plusDays(2).plusHours(1));
+
+        // Changement de partition : DELETE puis INSERT, l'id reste enregistré une seule fois
+        jdbcTemplate.update("UPDATE worktime SET start_hour = start_hour + INTERVAL '1 month', " +
+                "end_hour = end_hour + INTERVAL '1 month' WHERE id = ?", id);
+        assertThat(registered(id)).isEqualTo(1);
+        assertThatThrownBy(() -> insertWithId(id, monthStart.plusDays(5)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        // Après suppression, l'id est libéré
+        jdbcTemplate.update("DELETE FROM worktime WHERE id = ?", id);
+        assertThat(registered(id)).isZero();
+    }
+
+    @Test
+    void overlapQueryFindsWorktimesStartedBeforeTheWindow() {
+        LocalDateTime windowStart = monthStart.plusDays(10);
+        // Trois jours : commencé bien avant la fenêtre, s'y termine
+        insert(windowStart.minusDays(3), windowStart.plusHours(2));
+        insert(windowStart.minusDays(1), windowStart.minusHours(20));
+
+        long maxMinutes = worktimeRepository.findMaxWorktimeMinutes(user.getId());
+        List<Worktime> worktimes = worktimeRepository.findOverlappingWorktimesByUserIdAndPeriod(
+                user.getId(), windowStart.minusMinutes(maxMinutes), windowStart, windowStart.plusDays(1));
+
+        assertThat(maxMinutes).isEqualTo(3 * 24 * 60 + 120);
+        assertThat(worktimes).extracting(Worktime::getStartHour).containsExactly(windowStart.minusDays(3));
+    }
+
+    private int insert(LocalDateTime start, LocalDateTime end) {
+        return jdbcTemplate.queryForObject("INSERT INTO worktime (start_hour, end_hour, user_id) VALUES (?, ?, ?) RETURNING id",
+                Integer.class, start, end, user.getId());
+    }
+
+    private void insertWithId(int id, LocalDateTime start) {
+        jdbcTemplate.update("INSERT INTO worktime (id, start_hour, end_hour, user_id) VALUES (?, ?, ?, ?)",
+                id, start, start.plusHours(1), user.getId());
+    }
+
+    private int registered(int id) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM worktime_id_registry WHERE id = ?", Integer.class, id);
+    }
+}
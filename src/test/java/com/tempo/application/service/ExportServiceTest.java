@@ -0,0 +1,56 @@
+package com.tempo.application.service;
+
+import com.tempo.application.model.category.Category;
+import com.tempo.application.model.user.User;
+import com.tempo.application.model.worktimeSeries.WorktimeSeries;
+import com.tempo.application.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Occurrences de séries exportées sur [from, to[, avec leur fin réelle
+ */
+class ExportServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private WorktimeSeriesService worktimeSeriesService;
+
+    @Test
+    void nightSeriesIsExportedUntilExclusiveBound() {
+        User user = newUser();
+        Category category = newCategory(user, "Nuit");
+        LocalDateTime start = LocalDateTime.of(2025, 1, 30, 22, 0);
+        WorktimeSeries series = worktimeSeriesService.createWorktimeSeries(WorktimeSeries.builder()
+                .user(user)
+                .category(category)
+                .recurrence("FREQ=DAILY")
+                .startDate(start)
+                .startHour(start)
+                .endHour(start.plusHours(4))
+                .build());
+
+        List<String> rows = exportCsv(user, LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 2, 1, 0, 0));
+
+        // Le 1er février commence à la borne exclue ; chaque occurrence se termine le lendemain à 2h
+        assertThat(rows).containsExactly(
+                "series," + series.getId() + ",2025-01-30,2025-01-30T22:00,2025-01-31T02:00,240,Nuit",
+                "series," + series.getId() + ",2025-01-31,2025-01-31T22:00,2025-02-01T02:00,240,Nuit");
+    }
+
+    private List<String> exportCsv(User user, LocalDateTime from, LocalDateTime to) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exportService.export(user.getId(), from, to, ExportService.FORMAT_CSV, output);
+        List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        return lines.subList(1, lines.size());
+    }
+}
@@ -0,0 +1,131 @@
+package com.tempo.application.service;
+
+import com.tempo.application.model.category.Category;
+import com.tempo.application.model.user.User;
+import com.tempo.application.model.worktime.DTO.WorktimeRequestDTO;
+import com.tempo.application.model.worktimeSeries.WorktimeSeries;
+import com.tempo.application.support.PostgresIntegrationTest;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Les lectures du planning et des statistiques chargent catégories et exceptions avec
+ * leurs lignes parentes : le nombre de requêtes ne dépend pas du nombre de lignes.
+ */
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ReadPathStatementCountTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private ScheduleCache scheduleCache;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private StatsCache statsCache;
+
+    @Autowired
+    private WorktimeService worktimeService;
+
+    @Autowired
+    private WorktimeSeriesService worktimeSeriesService;
+
+    @Autowired
+    private RecurrenceExceptionService recurrenceExceptionService;
+
+    private final LocalDate today = LocalDate.now();
+
+    @Test
+    void scheduleWindowStatementsDoNotDependOnRowCount() {
+        User small = userWithRows(1);
+        User large = userWithRows(12);
+
+        long expected = statements(() -> loadSchedule(small));
+
+        // Lectures réellement exécutées (pas servies par le cache)
+        assertThat(expected).isPositive();
+        assertThat(statements(() -> loadSchedule(large))).isEqualTo(expected);
+    }
+
+    @Test
+    void statsStatementsDoNotDependOnRowCount() {
+        User small = userWithRows(1);
+        User large = userWithRows(12);
+
+        long expected = statements(() -> loadStats(small));
+
+        // Lectures réellement exécutées (pas servies par le cache)
+        assertThat(expected).isPositive();
+        assertThat(statements(() -> loadStats(large))).isEqualTo(expected);
+    }
+
+    private void loadSchedule(User user) {
+        scheduleCache.invalidateUser(user.getId());
+        scheduleService.getUserScheduleForWindow(today.minusDays(3), today.plusDays(3), user.getId());
+        scheduleService.getUserExpandedScheduleByMonth(today, user.getId());
+    }
+
+    private void loadStats(User user) {
+        statsCache.evictUser(user.getId());
+        LocalDateTime from = today.withDayOfMonth(1).atStartOfDay();
+        LocalDateTime to = from.plusMonths(1);
+        statsService.getCategoryStats(user.getId(), from, to);
+        statsService.getTotalWorkTime(user.getId(), from, to, "month");
+        statsService.getCombinedStats(user.getId(), from, to, "month");
+    }
+
+    private long statements(Runnable action) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Utilisateur avec count catégories, count worktimes et count séries (une catégorie chacun),
+     * une pause commune et une annulation par série
+     */
+    private User userWithRows(int count) {
+        User user = newUser();
+        for (int i = 0; i < count; i++) {
+            Category category = newCategory(user, "Catégorie " + i);
+
+            WorktimeRequestDTO.Category requestCategory = new WorktimeRequestDTO.Category();
+            requestCategory.setId(category.getId());
+            WorktimeRequestDTO worktime = new WorktimeRequestDTO();
+            worktime.setStartHour(today.atTime(8, i));
+            worktime.setEndHour(today.atTime(9, i));
+            worktime.setCategory(requestCategory);
+            worktimeService.createWorktime(worktime, user.getId());
+
+            LocalDateTime start = today.minusDays(10).atTime(14, i);
+            WorktimeSeries series = worktimeSeriesService.createWorktimeSeries(WorktimeSeries.builder()
+                    .user(user)
+                    .category(category)
+                    .recurrence("FREQ=DAILY")
+                    .startDate(start)
+                    .startHour(start)
+                    .endHour(start.plusHours(1))
+                    .build());
+            recurrenceExceptionService.createWorktimeSeriesException(series.getId(), today.plusDays(1), user.getId());
+        }
+        recurrenceExceptionService.createRecurrenceException(
+                today.minusDays(2).atStartOfDay(), today.minusDays(2).atTime(23, 59), user.getId());
+        return user;
+    }
+}
@@ -0,0 +1,138 @@
+package com.tempo.application.service;
+
+import com.tempo.application.model.category.Category;
+import com.tempo.application.model.recurrenceException.ExceptionType;
+import com.tempo.application.model.recurrenceException.RecurrenceException;
+import com.tempo.application.model.user.User;
+import com.tempo.application.model.worktimeSeries.WorktimeSeries;
+import com.tempo.application.repository.RecurrenceExceptionRepository;
+import com.tempo.application.repository.WorkTimeSeriesRepository;
+import com.tempo.application.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Chevauchements calculés avec pause_range : une série ou une pause de durée nulle
+ * ne doit pas donner une plage vide (liens perdus, doublons acceptés).
+ */
+class RecurrenceExceptionRangeTest extends PostgresIntegrationTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 3, 10, 0, 0);
+
+    @Autowired
+    private WorktimeSeriesService worktimeSeriesService;
+
+    @Autowired
+    private RecurrenceExceptionService recurrenceExceptionService;
+
+    @Autowired
+    private WorkTimeSeriesRepository workTimeSeriesRepository;
+
+    @Autowired
+    private RecurrenceExceptionRepository recurrenceExceptionRepository;
+
+    private User user;
+    private Category category;
+
+    @BeforeEach
+    void createUser() {
+        user = newUser();
+        category = newCategory(user, "Travail");
+    }
+
+    @Test
+    void singleDaySeriesIsLinkedToExistingPause() {
+        RecurrenceException pause = recurrenceExceptionService.createRecurrenceException(
+                DAY, DAY.withHour(23).withMinute(59), user.getId());
+
+        WorktimeSeries series = worktimeSeriesService.createWorktimeSeries(singleDaySeries());
+
+        assertThat(exceptionIdsOf(series)).containsExactly(pause.getId());
+    }
+
+    @Test
+    void singleDaySeriesKeepsItsPauseOnUpdate() {
+        WorktimeSeries series = worktimeSeriesService.createWorktimeSeries(singleDaySeries());
+        RecurrenceException pause = recurrenceExceptionService.createRecurrenceException(
+                DAY, DAY.withHour(23).withMinute(59), user.getId());
+        assertThat(exceptionIdsOf(series)).containsExactly(pause.getId());
+
+        WorktimeSeries update = singleDaySeries();
+        update.setEndHour(DAY.withHour(11));
+        worktimeSeriesService.updateWorktimeSeries(series.getId(), update);
+
+        assertThat(exceptionIdsOf(series)).containsExactly(pause.getId());
+    }
+
+    @Test
+    void zeroLengthPauseInsideExistingPauseIsRejected() {
+        recurrenceExceptionService.createRecurrenceException(DAY, DAY.plusDays(2), user.getId());
+
+        LocalDateTime instant = DAY.plusDays(1).withHour(12);
+        assertThatThrownBy(() -> recurrenceExceptionService.createRecurrenceException(instant, instant, user.getId()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void adjacentPauseIsAccepted() {
+        recurrenceExceptionService.createRecurrenceException(DAY, DAY.plusDays(2), user.getId());
+
+        // Même sémantique qu'avant : pause_start < fin et pause_end > début (bornes exclues)
+        LocalDateTime end = DAY.plusDays(2);
+        recurrenceExceptionService.createRecurrenceException(end, end.plusDays(1), user.getId());
+    }
+
+    @Test
+    void cancellationCrossingMidnightBelongsToItsStartDay() {
+        LocalDateTime start = DAY.withHour(9);
+        WorktimeSeries series = worktimeSeriesService.createWorktimeSeries(WorktimeSeries.builder()
+                .user(user)
+                .category(category)
+                .recurrence("FREQ=DAILY")
+                .startDate(start)
+                .startHour(start)
+                .endHour(start.plusHours(1))
+                .build());
+        Long seriesId = series.getId().longValue();
+        RecurrenceException cancellation = recurrenceExceptionService.createWorktimeSeriesException(
+                seriesId, DAY.toLocalDate(), user.getId());
+        cancellation.setPauseEnd(DAY.plusDays(1).withHour(2));
+        recurrenceExceptionRepository.save(cancellation);
+
+        // Le lendemain n'est pas annulé : l'annulation appartient au jour où elle commence
+        LocalDateTime nextDay = DAY.plusDays(1);
+        assertThat(recurrenceExceptionRepository.findByExceptionTypeAndTargetSeriesIdAndDateRange(
+                ExceptionType.WORKTIME_SERIES, seriesId, nextDay, nextDay.plusDays(1))).isEmpty();
+        assertThat(recurrenceExceptionRepository.findByExceptionTypeAndTargetSeriesIdAndDateRange(
+                ExceptionType.WORKTIME_SERIES, seriesId, DAY, nextDay))
+                .extracting(RecurrenceException::getId)
+                .containsExactly(cancellation.getId());
+    }
+
+    private WorktimeSeries singleDaySeries() {
+        LocalDateTime start = DAY.withHour(9);
+        return WorktimeSeries.builder()
+                .user(user)
+                .category(category)
+                .recurrence("FREQ=DAILY")
+                .startDate(start)
+                .endDate(start)
+                .startHour(start)
+                .endHour(start.plusHours(1))
+                .build();
+    }
+
+    private List<Long> exceptionIdsOf(WorktimeSeries series) {
+        return workTimeSeriesRepository.findAllWithExceptionsByIdIn(List.of(series.getId())).get(0)
+                .getExceptions().stream()
+                .map(RecurrenceException::getId)
+                .toList();
+    }
+}
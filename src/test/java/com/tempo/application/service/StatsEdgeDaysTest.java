@@ -0,0 +1,129 @@
+package com.tempo.application.service;
+
+import com.tempo.application.model.category.Category;
+import com.tempo.application.model.user.User;
+import com.tempo.application.model.worktime.DTO.CategoryStatDTO;
+import com.tempo.application.model.worktime.DTO.WorktimeRequestDTO;
+import com.tempo.application.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Worktimes ponctuels comptés s'ils chevauchent [from, to[ (start_hour < to AND end_hour > from),
+ * avec leur durée complète : l'agrégat journalier ne couvre que les jours entiers,
+ * les jours de bord sont lus dans la table worktime.
+ */
+class StatsEdgeDaysTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private StatsCache statsCache;
+
+    @Autowired
+    private WorktimeService worktimeService;
+
+    private User user;
+
+    @BeforeEach
+    void createData() {
+        user = newUser();
+        Category work = newCategory(user, "Travail");
+        Category night = newCategory(user, "Nuit");
+
+        // Commencé la veille de 'from', se termine après : 300 minutes
+        worktime(night, LocalDateTime.of(2026, 1, 31, 22, 0), LocalDateTime.of(2026, 2, 1, 3, 0));
+        // Commencé trois jours avant 'from' : 4350 minutes
+        worktime(night, LocalDateTime.of(2026, 1, 29, 0, 0), LocalDateTime.of(2026, 2, 1, 0, 30));
+        // Terminé avant 'from' : jamais compté
+        worktime(work, LocalDateTime.of(2026, 1, 31, 8, 0), LocalDateTime.of(2026, 1, 31, 12, 0));
+        // Jour entier : 60 minutes
+        worktime(work, LocalDateTime.of(2026, 2, 10, 9, 0), LocalDateTime.of(2026, 2, 10, 10, 0));
+        // Jour de 'to' avant minuit : 90 minutes, puis commencé après 'to'
+        worktime(work, LocalDateTime.of(2026, 2, 20, 6, 0), LocalDateTime.of(2026, 2, 20, 7, 30));
+        worktime(work, LocalDateTime.of(2026, 2, 20, 9, 0), LocalDateTime.of(2026, 2, 20, 11, 0));
+    }
+
+    @AfterEach
+    void resetEngine() {
+        useEngine("java");
+    }
+
+    @Test
+    void worktimesStartedBeforeFromAreCountedOnMidnightBounds() {
+        LocalDateTime from = LocalDateTime.of(2026, 2, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2026, 3, 1, 0, 0);
+
+        for (String engine : List.of("java", "materialized", "sql")) {
+            useEngine(engine);
+            assertThat(byCategory(statsService.getCategoryStats(user.getId(), from, to)))
+                    .as(engine)
+                    .isEqualTo(Map.of("Nuit", 4650, "Travail", 60 + 90 + 120));
+            assertThat(totalOf(statsService.getTotalWorkTime(user.getId(), from, to, "year")))
+                    .as(engine)
+                    .isEqualTo(60 + 90 + 120);
+        }
+        assertThat(byCategory(combinedCategories(from, to))).isEqualTo(Map.of("Nuit", 4650, "Travail", 270));
+    }
+
+    @Test
+    void intraDayBoundsOnlyCountOverlappingWorktimes() {
+        LocalDateTime from = LocalDateTime.of(2026, 2, 1, 1, 0);
+        LocalDateTime to = LocalDateTime.of(2026, 2, 20, 8, 0);
+
+        assertThat(byCategory(statsService.getCategoryStats(user.getId(), from, to)))
+                .isEqualTo(Map.of("Nuit", 300, "Travail", 60 + 90));
+        assertThat(byCategory(combinedCategories(from, to))).isEqualTo(Map.of("Nuit", 300, "Travail", 150));
+    }
+
+    @Test
+    void periodWithoutFullDayIsReadFromTheWorktimeTable() {
+        LocalDateTime from = LocalDateTime.of(2026, 2, 20, 7, 0);
+        LocalDateTime to = LocalDateTime.of(2026, 2, 20, 10, 0);
+
+        assertThat(byCategory(statsService.getCategoryStats(user.getId(), from, to)))
+                .isEqualTo(Map.of("Travail", 90 + 120));
+    }
+
+    private void worktime(Category category, LocalDateTime start, LocalDateTime end) {
+        WorktimeRequestDTO request = new WorktimeRequestDTO();
+        request.setStartHour(start);
+        request.setEndHour(end);
+        WorktimeRequestDTO.Category requestCategory = new WorktimeRequestDTO.Category();
+        requestCategory.setId(category.getId());
+        request.setCategory(requestCategory);
+        worktimeService.createWorktime(request, user.getId());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CategoryStatDTO> combinedCategories(LocalDateTime from, LocalDateTime to) {
+        return (List<CategoryStatDTO>) statsService.getCombinedStats(user.getId(), from, to, "month").get("categories");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int totalOf(Map<String, Object> total) {
+        return ((List<Integer>) total.get("data")).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private void useEngine(String engine) {
+        StatsService target = AopTestUtils.getUltimateTargetObject(statsService);
+        ReflectionTestUtils.setField(target, "statsEngine", engine);
+        statsCache.evictUser(user.getId());
+    }
+
+    private static Map<String, Integer> byCategory(List<CategoryStatDTO> stats) {
+        return stats.stream().collect(Collectors.toMap(CategoryStatDTO::getName, CategoryStatDTO::getDuration));
+    }
+}
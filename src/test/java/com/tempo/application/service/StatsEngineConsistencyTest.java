@@ -0,0 +1,127 @@
+package com.tempo.application.service;
+
+import com.tempo.application.model.category.Category;
+import com.tempo.application.model.user.User;
+import com.tempo.application.model.worktime.DTO.CategoryStatDTO;
+import com.tempo.application.model.worktimeSeries.WorktimeSeries;
+import com.tempo.application.repository.WorkTimeSeriesRepository;
+import com.tempo.application.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Les moteurs de statistiques (java, sql, materialized) doivent donner les mêmes totaux
+ * sur les mêmes données : mêmes jours annulés et mêmes bornes de période.
+ */
+class StatsEngineConsistencyTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private StatsCache statsCache;
+
+    @Autowired
+    private WorktimeSeriesService worktimeSeriesService;
+
+    @Autowired
+    private WorkTimeSeriesRepository workTimeSeriesRepository;
+
+    @Autowired
+    private RecurrenceExceptionService recurrenceExceptionService;
+
+    private User user;
+
+    @BeforeEach
+    void createData() {
+        user = newUser();
+        Category work = newCategory(user, "Travail");
+        Category sport = newCategory(user, "Sport");
+
+        // Hebdomadaire simple, soumise aux pauses
+        worktimeSeriesService.createWorktimeSeries(series(work, "FREQ=WEEKLY;BYDAY=MO,WE,FR",
+                LocalDateTime.of(2026, 1, 5, 9, 0), LocalDateTime.of(2026, 3, 31, 9, 0), false));
+        // Tous les deux jours, fin en cours de journée avant l'heure de début
+        worktimeSeriesService.createWorktimeSeries(series(sport, "FREQ=DAILY;INTERVAL=2",
+                LocalDateTime.of(2026, 1, 10, 18, 0), LocalDateTime.of(2026, 2, 20, 7, 0), false));
+        // Ignore toutes les exceptions, y compris ses propres annulations
+        WorktimeSeries ignoring = worktimeSeriesService.createWorktimeSeries(series(sport, "FREQ=WEEKLY;BYDAY=TU,TH",
+                LocalDateTime.of(2026, 1, 1, 12, 0), null, true));
+
+        recurrenceExceptionService.createRecurrenceException(
+                LocalDateTime.of(2026, 2, 2, 0, 0), LocalDateTime.of(2026, 2, 6, 23, 59), user.getId());
+        recurrenceExceptionService.createWorktimeSeriesException(ignoring.getId(), LocalDate.of(2026, 2, 10), user.getId());
+    }
+
+    @AfterEach
+    void resetEngine() {
+        useEngine("java");
+    }
+
+    @Test
+    void enginesAgreeOnMidnightBounds() {
+        assertEnginesAgree(LocalDateTime.of(2026, 1, 1, 0, 0), LocalDateTime.of(2026, 3, 1, 0, 0));
+    }
+
+    @Test
+    void enginesAgreeOnIntraDayBounds() {
+        assertEnginesAgree(LocalDateTime.of(2026, 2, 4, 15, 0), LocalDateTime.of(2026, 2, 20, 8, 0));
+    }
+
+    private void assertEnginesAgree(LocalDateTime from, LocalDateTime to) {
+        useEngine("java");
+        Map<String, Integer> javaCategories = byCategory(statsService.getCategoryStats(user.getId(), from, to));
+        Map<String, Object> javaTotal = statsService.getTotalWorkTime(user.getId(), from, to, "month");
+        Map<String, Object> javaCombined = statsService.getCombinedStats(user.getId(), from, to, "month");
+        assertThat(javaCategories).isNotEmpty();
+
+        // Sans matérialisation complète, le moteur materialized retomberait sur le développement Java
+        assertThat(workTimeSeriesRepository.countSeriesNotMaterializedUntil(user.getId(), from, to, to.toLocalDate())).isZero();
+        useEngine("materialized");
+        assertThat(byCategory(statsService.getCategoryStats(user.getId(), from, to))).isEqualTo(javaCategories);
+        assertThat(statsService.getTotalWorkTime(user.getId(), from, to, "month")).isEqualTo(javaTotal);
+        assertThat(statsService.getCombinedStats(user.getId(), from, to, "month").get("total"))
+                .isEqualTo(javaCombined.get("total"));
+        assertThat(statsService.getCombinedStats(user.getId(), from, to, "month").get("byCategory"))
+                .isEqualTo(javaCombined.get("byCategory"));
+
+        useEngine("sql");
+        assertThat(statsService.getTotalWorkTime(user.getId(), from, to, "month")).isEqualTo(javaTotal);
+    }
+
+    private void useEngine(String engine) {
+        StatsService target = AopTestUtils.getUltimateTargetObject(statsService);
+        ReflectionTestUtils.setField(target, "statsEngine", engine);
+        statsCache.evictUser(user.getId());
+    }
+
+    private WorktimeSeries series(Category category, String recurrence, LocalDateTime start, LocalDateTime end,
+                                  boolean ignoreExceptions) {
+        return WorktimeSeries.builder()
+                .user(user)
+                .category(category)
+                .recurrence(recurrence)
+                .startDate(start)
+                .endDate(end)
+                .startHour(start)
+                .endHour(start.plusHours(2))
+                .ignoreExceptions(ignoreExceptions)
+                .build();
+    }
+
+    private static Map<String, Integer> byCategory(List<CategoryStatDTO> stats) {
+        return stats.stream().collect(Collectors.toMap(CategoryStatDTO::getName, CategoryStatDTO::getDuration));
+    }
+}
@@ -0,0 +1,85 @@
+package com.tempo.application.support;
+
+import com.tempo.application.model.category.Category;
+import com.tempo.application.model.user.User;
+import com.tempo.application.repository.CategoryRepository;
+import com.tempo.application.repository.UserRepository;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.UUID;
+
+/**
+ * Base des tests d'intégration : application complète sur PostgreSQL, schéma créé par
+ * les migrations Flyway. La base est un conteneur jetable partagé par les classes de test,
+ * ou la base désignée par TEST_DATABASE_URL (TEST_DATABASE_USERNAME, TEST_DATABASE_PASSWORD).
+ * Sans Docker ni base externe, les tests sont ignorés.
+ */
+@SpringBootTest(properties = {
+        // Pas de tâche planifiée pendant les tests : les tests appellent les services directement
+        "app.series.occurrences.initial-delay-ms=86400000",
+        "app.worktime.partitions.cron=-",
+        // JavaMailSender n'est créé que si un hôte SMTP est configuré ; aucun mail n'est envoyé
+        "spring.mail.host=localhost"
+})
+public abstract class PostgresIntegrationTest {
+
+    private static final String EXTERNAL_URL = System.getenv("TEST_DATABASE_URL");
+
+    private static PostgreSQLContainer<?> postgres;
+
+    private static synchronized PostgreSQLContainer<?> postgres() {
+        if (postgres == null && EXTERNAL_URL == null && DockerClientFactory.instance().isDockerAvailable()) {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+        }
+        return postgres;
+    }
+
+    @BeforeAll
+    static void requireDatabase() {
+        Assumptions.assumeTrue(EXTERNAL_URL != null || postgres() != null,
+                "Neither Docker nor TEST_DATABASE_URL is available");
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        if (EXTERNAL_URL != null) {
+            registry.add("spring.datasource.url", () -> EXTERNAL_URL);
+            registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("TEST_DATABASE_USERNAME", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("TEST_DATABASE_PASSWORD", ""));
+        } else if (postgres() != null) {
+            registry.add("spring.datasource.url", postgres::getJdbcUrl);
+            registry.add("spring.datasource.username", postgres::getUsername);
+            registry.add("spring.datasource.password", postgres::getPassword);
+        }
+    }
+
+    @Autowired
+    protected UserRepository userRepository;
+
+    @Autowired
+    protected CategoryRepository categoryRepository;
+
+    /**
+     * Utilisateur au nom unique : les tests d'une même classe ne partagent pas de données
+     */
+    protected User newUser() {
+        String name = "user-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@tempo.test");
+        user.setPassword("secret");
+        return userRepository.save(user);
+    }
+
+    protected Category newCategory(User user, String name) {
+        return categoryRepository.save(Category.builder().name(name).user(user).build());
+    }
+}
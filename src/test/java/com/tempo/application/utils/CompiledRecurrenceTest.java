@@ -0,0 +1,160 @@
+package com.tempo.application.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Occurrences du curseur par période (RuleOccurrenceCursor) et du curseur hebdomadaire,
+ * comparées à l'ancienne implémentation jour par jour sur les règles qu'elle gérait,
+ * et à des dates calculées à la main pour les parties RFC5545 ajoutées.
+ */
+class CompiledRecurrenceTest {
+
+    private static final LocalTime NINE = LocalTime.of(9, 0);
+
+    // Lundi
+    private static final LocalDateTime START = LocalDate.of(2026, 1, 5).atTime(NINE);
+
+    @Test
+    void simpleWeeklyRulesMatchPreviousImplementation() {
+        List<String> rules = List.of(
+                "FREQ=WEEKLY;BYDAY=MO,WE,FR",
+                "FREQ=WEEKLY;BYDAY=SA,SU",
+                "FREQ=WEEKLY;BYDAY=TU",
+                "FREQ=WEEKLY;BYDAY=MO,TU,WE,TH,FR,SA,SU");
+        for (String rule : rules) {
+            for (int fromOffset = -3; fromOffset < 10; fromOffset++) {
+                for (int length = 0; length < 40; length += 3) {
+                    LocalDateTime from = START.minusHours(9).plusDays(fromOffset);
+                    // Fin en cours de journée, avant puis après l'heure des occurrences
+                    for (LocalDateTime to : List.of(from.plusDays(length).withHour(8), from.plusDays(length).withHour(18))) {
+                        assertThat(RecurrenceUtils.generateOccurrences(rule, START, from, to))
+                                .as("%s from %s to %s", rule, from, to)
+                                .isEqualTo(previousImplementation(rule, START, from, to));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void weeklyIntervalSkipsWeeks() {
+        assertThat(days("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,TH", START, date(2026, 1, 1), date(2026, 2, 1)))
+                .containsExactly(date(2026, 1, 5), date(2026, 1, 8), date(2026, 1, 19), date(2026, 1, 22));
+    }
+
+    @Test
+    void dailyIntervalStaysAlignedOnTheStartDay() {
+        // Le curseur saute directement à la période alignée contenant 'from'
+        assertThat(days("FREQ=DAILY;INTERVAL=3", START, date(2026, 1, 20), date(2026, 1, 30)))
+                .containsExactly(date(2026, 1, 20), date(2026, 1, 23), date(2026, 1, 26), date(2026, 1, 29));
+    }
+
+    @Test
+    void countIsCountedFromTheSeriesStart() {
+        String rule = "FREQ=WEEKLY;BYDAY=MO,WE;COUNT=3";
+
+        assertThat(days(rule, START, date(2026, 1, 1), date(2026, 3, 1)))
+                .containsExactly(date(2026, 1, 5), date(2026, 1, 7), date(2026, 1, 12));
+        assertThat(days(rule, START, date(2026, 1, 10), date(2026, 3, 1)))
+                .containsExactly(date(2026, 1, 12));
+    }
+
+    @Test
+    void ordinalByDayPicksTheNthWeekdayOfTheMonth() {
+        assertThat(days("FREQ=MONTHLY;BYDAY=-1FR", START, date(2026, 1, 1), date(2026, 4, 30)))
+                .containsExactly(date(2026, 1, 30), date(2026, 2, 27), date(2026, 3, 27), date(2026, 4, 24));
+        assertThat(days("FREQ=MONTHLY;BYDAY=2TU", START, date(2026, 1, 1), date(2026, 3, 31)))
+                .containsExactly(date(2026, 1, 13), date(2026, 2, 10), date(2026, 3, 10));
+    }
+
+    @Test
+    void bySetPosPicksTheLastWeekdayOfTheMonth() {
+        assertThat(days("FREQ=MONTHLY;BYDAY=MO,TU,WE,TH,FR;BYSETPOS=-1", START, date(2026, 1, 1), date(2026, 4, 30)))
+                .containsExactly(date(2026, 1, 30), date(2026, 2, 27), date(2026, 3, 31), date(2026, 4, 30));
+    }
+
+    @Test
+    void weeklyWithoutByDayRepeatsOnTheStartWeekday() {
+        LocalDateTime wednesday = LocalDate.of(2026, 1, 7).atTime(NINE);
+        LocalDateTime from = date(2026, 1, 1).atStartOfDay();
+        LocalDateTime to = date(2026, 1, 31).atStartOfDay();
+
+        assertThat(days("FREQ=WEEKLY", wednesday, date(2026, 1, 1), date(2026, 1, 31)))
+                .containsExactly(date(2026, 1, 7), date(2026, 1, 14), date(2026, 1, 21), date(2026, 1, 28));
+        // Changement de comportement : l'ancienne implémentation ne produisait rien
+        assertThat(previousImplementation("FREQ=WEEKLY", wednesday, from, to)).isEmpty();
+    }
+
+    @Test
+    void ruleWithoutFrequencyHasNoOccurrence() {
+        assertThat(days("BYDAY=MO", START, date(2026, 1, 1), date(2026, 2, 1))).isEmpty();
+    }
+
+    private static List<LocalDate> days(String rule, LocalDateTime start, LocalDate from, LocalDate to) {
+        return RecurrenceUtils.generateOccurrences(rule, start, from.atStartOfDay(), to.atTime(23, 59)).stream()
+                .peek(occurrence -> assertThat(occurrence.toLocalTime()).isEqualTo(NINE))
+                .map(LocalDateTime::toLocalDate)
+                .toList();
+    }
+
+    private static LocalDate date(int year, int month, int day) {
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Implémentation précédente de RecurrenceUtils.generateOccurrences, recopiée telle quelle :
+     * règles FREQ=WEEKLY;BYDAY=... uniquement, parcours jour par jour
+     */
+    private static List<LocalDateTime> previousImplementation(String rrule, LocalDateTime seriesStartDate,
+                                                              LocalDateTime from, LocalDateTime to) {
+        List<LocalDateTime> occurrences = new ArrayList<>();
+        if (rrule == null || !rrule.startsWith("FREQ=WEEKLY")) {
+            return occurrences;
+        }
+        Map<String, DayOfWeek> dayMap = new HashMap<>();
+        dayMap.put("MO", DayOfWeek.MONDAY);
+        dayMap.put("TU", DayOfWeek.TUESDAY);
+        dayMap.put("WE", DayOfWeek.WEDNESDAY);
+        dayMap.put("TH", DayOfWeek.THURSDAY);
+        dayMap.put("FR", DayOfWeek.FRIDAY);
+        dayMap.put("SA", DayOfWeek.SATURDAY);
+        dayMap.put("SU", DayOfWeek.SUNDAY);
+
+        List<DayOfWeek> daysOfWeek = new ArrayList<>();
+        for (String part : rrule.split(";")) {
+            if (part.startsWith("BYDAY=")) {
+                for (String d : part.substring(6).split(",")) {
+                    if (dayMap.containsKey(d)) {
+                        daysOfWeek.add(dayMap.get(d));
+                    }
+                }
+            }
+        }
+        if (daysOfWeek.isEmpty()) {
+            return occurrences;
+        }
+        LocalDateTime current = seriesStartDate.isBefore(from) ? from : seriesStartDate;
+        while (!current.isAfter(to)) {
+            if (!current.isBefore(seriesStartDate) && daysOfWeek.contains(current.getDayOfWeek())) {
+                occurrences.add(current
+                        .withHour(seriesStartDate.getHour())
+                        .withMinute(seriesStartDate.getMinute())
+                        .withSecond(0)
+                        .withNano(0));
+            }
+            current = current.plusDays(1);
+        }
+        return occurrences;
+    }
+}
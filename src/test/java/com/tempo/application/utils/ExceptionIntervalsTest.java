@@ -0,0 +1,132 @@
+package com.tempo.application.utils;
+
+import com.tempo.application.model.recurrenceException.ExceptionType;
+import com.tempo.application.model.recurrenceException.RecurrenceException;
+import com.tempo.application.model.worktimeSeries.WorktimeSeries;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExceptionIntervalsTest {
+
+    private static final long SERIES_ID = 7L;
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 10);
+
+    @Test
+    void statsExcludeEveryExceptionOfTheSeries() {
+        WorktimeSeries series = series(false,
+                pause(DAY, DAY.plusDays(1)),
+                cancellation(DAY.plusDays(5)));
+
+        ExceptionIntervals excluded = ExceptionIntervals.excludedDaysOf(series);
+
+        assertThat(excluded.contains(day(DAY))).isTrue();
+        assertThat(excluded.contains(day(DAY.plusDays(1)))).isTrue();
+        assertThat(excluded.contains(day(DAY.plusDays(2)))).isFalse();
+        assertThat(excluded.contains(day(DAY.plusDays(5)))).isTrue();
+    }
+
+    @Test
+    void statsExcludeNothingWhenTheSeriesIgnoresExceptions() {
+        WorktimeSeries series = series(true,
+                pause(DAY, DAY.plusDays(1)),
+                cancellation(DAY.plusDays(5)));
+
+        assertThat(ExceptionIntervals.excludedDaysOf(series).isEmpty()).isTrue();
+    }
+
+    @Test
+    void scheduleCancelsOnlyOnTheSeriesOwnCancellationDays() {
+        RecurrenceException otherSeries = cancellation(DAY.plusDays(3));
+        otherSeries.setTargetSeriesId(SERIES_ID + 1);
+        WorktimeSeries series = series(true,
+                pause(DAY, DAY.plusDays(1)),
+                cancellation(DAY.plusDays(5)),
+                otherSeries);
+
+        ExceptionIntervals cancelled = ExceptionIntervals.cancelledDaysOf(series);
+
+        assertThat(cancelled.contains(day(DAY))).isFalse();
+        assertThat(cancelled.contains(day(DAY.plusDays(3)))).isFalse();
+        assertThat(cancelled.contains(day(DAY.plusDays(5)))).isTrue();
+    }
+
+    @Test
+    void scheduleCancellationCrossingMidnightCancelsItsStartDayOnly() {
+        RecurrenceException cancellation = cancellation(DAY);
+        cancellation.setPauseEnd(DAY.plusDays(1).atTime(2, 0));
+
+        ExceptionIntervals cancelled = ExceptionIntervals.cancelledDaysOf(series(false, cancellation));
+
+        assertThat(cancelled.contains(day(DAY))).isTrue();
+        assertThat(cancelled.contains(day(DAY.plusDays(1)))).isFalse();
+    }
+
+    @Test
+    void pauseCrossingMidnightExcludesBothDays() {
+        RecurrenceException night = RecurrenceException.builder()
+                .exceptionType(ExceptionType.DAY)
+                .pauseStart(LocalDate.of(2026, 3, 31).atTime(22, 0))
+                .pauseEnd(LocalDate.of(2026, 4, 1).atTime(2, 0))
+                .build();
+
+        ExceptionIntervals excluded = ExceptionIntervals.of(List.of(night));
+
+        assertThat(excluded.contains(day(LocalDate.of(2026, 3, 30)))).isFalse();
+        assertThat(excluded.contains(day(LocalDate.of(2026, 3, 31)))).isTrue();
+        assertThat(excluded.contains(day(LocalDate.of(2026, 4, 1)))).isTrue();
+        assertThat(excluded.contains(day(LocalDate.of(2026, 4, 2)))).isFalse();
+    }
+
+    @Test
+    void overlappingAndAdjacentPausesAreMerged() {
+        ExceptionIntervals excluded = ExceptionIntervals.of(List.of(
+                pause(DAY.plusDays(4), DAY.plusDays(6)),
+                pause(DAY, DAY.plusDays(1)),
+                pause(DAY.plusDays(2), DAY.plusDays(3)),
+                pause(DAY.plusDays(10), DAY.plusDays(10))));
+
+        assertThat(excluded.size()).isEqualTo(2);
+        assertThat(excluded.getStart(0)).isEqualTo(day(DAY));
+        assertThat(excluded.getEnd(0)).isEqualTo(day(DAY.plusDays(6)));
+        assertThat(excluded.contains(day(DAY.plusDays(3)))).isTrue();
+        assertThat(excluded.contains(day(DAY.plusDays(7)))).isFalse();
+        assertThat(excluded.firstEndingAtOrAfter(day(DAY.plusDays(7)))).isEqualTo(1);
+        assertThat(excluded.firstEndingAtOrAfter(day(DAY.plusDays(11)))).isEqualTo(2);
+    }
+
+    private static WorktimeSeries series(boolean ignoreExceptions, RecurrenceException... exceptions) {
+        return WorktimeSeries.builder()
+                .id(SERIES_ID)
+                .ignoreExceptions(ignoreExceptions)
+                .exceptions(new ArrayList<>(List.of(exceptions)))
+                .build();
+    }
+
+    private static RecurrenceException pause(LocalDate first, LocalDate last) {
+        return RecurrenceException.builder()
+                .exceptionType(ExceptionType.DAY)
+                .pauseStart(first.atStartOfDay())
+                .pauseEnd(last.atTime(23, 59))
+                .build();
+    }
+
+    private static RecurrenceException cancellation(LocalDate date) {
+        LocalDateTime start = date.atTime(9, 0);
+        return RecurrenceException.builder()
+                .exceptionType(ExceptionType.WORKTIME_SERIES)
+                .targetSeriesId(SERIES_ID)
+                .pauseStart(start)
+                .pauseEnd(start.plusHours(2))
+                .build();
+    }
+
+    private static long day(LocalDate date) {
+        return date.toEpochDay();
+    }
+}
@@ -0,0 +1,114 @@
+package com.tempo.application.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MaskOccurrenceCursorTest {
+
+    private static final int MO_WE_FR = CompiledRecurrence.bit(DayOfWeek.MONDAY)
+            | CompiledRecurrence.bit(DayOfWeek.WEDNESDAY)
+            | CompiledRecurrence.bit(DayOfWeek.FRIDAY);
+
+    @Test
+    void crossesMonthBoundary() {
+        // Mercredi 28 janvier -> mardi 3 février 2026
+        List<LocalDate> days = collect(new MaskOccurrenceCursor(MO_WE_FR,
+                day(2026, 1, 28), day(2026, 2, 3)));
+
+        assertThat(days).containsExactly(
+                LocalDate.of(2026, 1, 28),
+                LocalDate.of(2026, 1, 30),
+                LocalDate.of(2026, 2, 2));
+    }
+
+    @Test
+    void crossesYearBoundary() {
+        int sunday = CompiledRecurrence.bit(DayOfWeek.SUNDAY);
+        List<LocalDate> days = collect(new MaskOccurrenceCursor(sunday, day(2025, 12, 25), day(2026, 1, 10)));
+
+        assertThat(days).containsExactly(
+                LocalDate.of(2025, 12, 28),
+                LocalDate.of(2026, 1, 4));
+    }
+
+    @Test
+    void windowBoundsAreInclusive() {
+        // Lundi 2 février -> vendredi 6 février
+        List<LocalDate> days = collect(new MaskOccurrenceCursor(MO_WE_FR, day(2026, 2, 2), day(2026, 2, 6)));
+
+        assertThat(days).containsExactly(
+                LocalDate.of(2026, 2, 2),
+                LocalDate.of(2026, 2, 4),
+                LocalDate.of(2026, 2, 6));
+    }
+
+    @Test
+    void emptyMaskOrWindowHasNoOccurrence() {
+        assertThat(new MaskOccurrenceCursor(0, day(2026, 2, 1), day(2026, 2, 28)).hasNext()).isFalse();
+        assertThat(new MaskOccurrenceCursor(MO_WE_FR, day(2026, 2, 3), day(2026, 2, 3)).hasNext()).isFalse();
+        assertThat(new MaskOccurrenceCursor(MO_WE_FR, day(2026, 2, 5), day(2026, 2, 4)).hasNext()).isFalse();
+    }
+
+    @Test
+    void matchesDayByDayScanForEveryMaskAroundFebruary() {
+        // Fenêtres qui commencent fin janvier et se terminent jusqu'en mars (février de 28 jours)
+        long first = day(2026, 1, 25);
+        for (int mask = 0; mask < 128; mask++) {
+            for (long from = first; from < first + 10; from++) {
+                for (long to = from - 1; to < from + 40; to++) {
+                    List<Long> expected = scan(mask, from, to);
+
+                    assertThat(collectEpochDays(new MaskOccurrenceCursor(mask, from, to)))
+                            .as("mask %s from %s to %s", mask, LocalDate.ofEpochDay(from), LocalDate.ofEpochDay(to))
+                            .isEqualTo(expected);
+                    assertThat(RecurrenceUtils.countDays(mask, from, to)).isEqualTo(expected.size());
+                }
+            }
+        }
+    }
+
+    @Test
+    void countExcludesPauseAcrossMonthBoundary() {
+        CompiledRecurrence weekly = CompiledRecurrence.of("FREQ=WEEKLY;BYDAY=MO,WE,FR");
+        long start = day(2026, 1, 1);
+        // Pause du vendredi 30 janvier au lundi 2 février inclus
+        ExceptionIntervals pause = ExceptionIntervals.fromRanges(new long[] { day(2026, 1, 30), day(2026, 2, 2) }, 1);
+
+        long count = RecurrenceUtils.countOccurrences(weekly, start, day(2026, 1, 26), day(2026, 2, 8), pause);
+
+        // Lundi 26, mercredi 28, mercredi 4, vendredi 6
+        assertThat(count).isEqualTo(4);
+    }
+
+    private static List<Long> scan(int mask, long from, long to) {
+        List<Long> days = new ArrayList<>();
+        for (long day = from; day <= to; day++) {
+            if ((mask & CompiledRecurrence.bit(LocalDate.ofEpochDay(day).getDayOfWeek())) != 0) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    private static List<Long> collectEpochDays(OccurrenceCursor cursor) {
+        List<Long> days = new ArrayList<>();
+        while (cursor.hasNext()) {
+            days.add(cursor.nextEpochDay());
+        }
+        return days;
+    }
+
+    private static List<LocalDate> collect(OccurrenceCursor cursor) {
+        return collectEpochDays(cursor).stream().map(LocalDate::ofEpochDay).toList();
+    }
+
+    private static long day(int year, int month, int dayOfMonth) {
+        return LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    }
+}